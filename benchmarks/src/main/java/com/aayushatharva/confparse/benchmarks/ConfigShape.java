@@ -0,0 +1,111 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.benchmarks;
+
+/**
+ * The shapes of the generated configs the benchmarks run against.
+ *
+ * @author Aayush Atharva
+ */
+public enum ConfigShape {
+
+    /**
+     * Many headers with few keys each.
+     */
+    MANY_HEADERS(5000, 4, 2),
+
+    /**
+     * Few headers with many keys each.
+     */
+    MANY_KEYS(10, 2000, 2),
+
+    /**
+     * Few headers and keys with long value lists.
+     */
+    WIDE_VALUES(10, 10, 1000);
+
+    /**
+     * The number of headers.
+     */
+    private final int headers;
+
+    /**
+     * The number of keys per header.
+     */
+    private final int keys;
+
+    /**
+     * The number of values per key.
+     */
+    private final int values;
+
+    ConfigShape(int headers, int keys, int values) {
+        this.headers = headers;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Generates the config data of this shape. All values are integers.
+     *
+     * @return The config data.
+     */
+    public String generate() {
+        StringBuilder data = new StringBuilder();
+        data.append("# Generated ").append(name()).append(" config\n");
+
+        for (int h = 0; h < headers; h++) {
+            data.append(headerName(h)).append(":\n");
+            for (int k = 0; k < keys; k++) {
+                data.append('\t').append(keyName(k));
+                for (int v = 0; v < values; v++) {
+                    data.append(' ').append(h + k + v);
+                }
+                data.append('\n');
+            }
+            data.append('\n');
+        }
+
+        return data.toString();
+    }
+
+    /**
+     * Returns the name of the header in the middle of the config.
+     *
+     * @return The header name.
+     */
+    public String middleHeader() {
+        return headerName(headers / 2);
+    }
+
+    /**
+     * Returns the name of the key in the middle of a header.
+     *
+     * @return The key name.
+     */
+    public String middleKey() {
+        return keyName(keys / 2);
+    }
+
+    private static String headerName(int index) {
+        return "Header" + index;
+    }
+
+    private static String keyName(int index) {
+        return "key" + index;
+    }
+}
@@ -0,0 +1,101 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.ConfParse;
+import com.aayushatharva.confparse.ConfParseConfig;
+import com.aayushatharva.confparse.ConfParseHandle;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures header and key lookups on a built config.
+ *
+ * @author Aayush Atharva
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({"MANY_HEADERS", "MANY_KEYS"})
+    public ConfigShape shape;
+
+    @Param({"false", "true"})
+    public boolean frozen;
+
+    private ConfParseConfig config;
+
+    private String header;
+
+    private String key;
+
+    private ConfParseHandle handle;
+
+    @Setup
+    public void setup() throws ConfParseException {
+        config = ConfParse.fromData(shape.generate()).freeze(frozen).BuildFromData();
+        header = shape.middleHeader();
+        key = shape.middleKey();
+        handle = config.getHandle(header, key);
+    }
+
+    @Benchmark
+    public Object getHeader() {
+        return config.getHeader(header);
+    }
+
+    @Benchmark
+    public Key getHeaderAndKey() {
+        return config.getHeader(header).getKey(key);
+    }
+
+    @Benchmark
+    public Key getKey() {
+        return config.getKey(header, key);
+    }
+
+    @Benchmark
+    public Key handle() {
+        return handle.getKey();
+    }
+
+    @Benchmark
+    public boolean hasHeaderAndKey() {
+        return config.hasHeaderAndKey(header, key);
+    }
+
+    @Benchmark
+    public boolean missingHeader() {
+        return config.hasHeader("Missing");
+    }
+}
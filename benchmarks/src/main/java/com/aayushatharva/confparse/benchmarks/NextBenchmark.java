@@ -0,0 +1,84 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the round-robin of {@link Key#next()} with all available threads
+ * calling it on the same key, against every thread iterating the key with its
+ * own {@link Key.Cursor}. Run with {@code -t 1,2,4,...} to see how it scales
+ * with the number of threads.
+ *
+ * @author Aayush Atharva
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class NextBenchmark {
+
+    private Key key;
+
+    @Setup
+    public void setup() {
+        key = new Key("Backends");
+        for (int i = 0; i < 8; i++) {
+            key.addValue(new Value("10.0.0." + i));
+        }
+    }
+
+    /**
+     * The cursor of a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadCursor {
+
+        private Key.Cursor cursor;
+
+        @Setup
+        public void setup(NextBenchmark benchmark) {
+            cursor = benchmark.key.newCursor();
+        }
+    }
+
+    @Benchmark
+    public Value next() {
+        return key.next();
+    }
+
+    @Benchmark
+    public Value threadCursor(ThreadCursor state) {
+        return state.cursor.next();
+    }
+}
@@ -0,0 +1,158 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.ConfParse;
+import com.aayushatharva.confparse.ConfParseConfig;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading and parsing a whole config from data, bytes, a file and a
+ * URL, sequentially and in parallel.
+ *
+ * @author Aayush Atharva
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param
+    public ConfigShape shape;
+
+    private String data;
+
+    private byte[] bytes;
+
+    private File file;
+
+    private HttpServer server;
+
+    private URL url;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = shape.generate();
+        bytes = data.getBytes(StandardCharsets.UTF_8);
+
+        file = File.createTempFile("confparse-" + shape, ".conf");
+        Files.write(file.toPath(), bytes);
+
+        // A Local Stand-In For A Config Server
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/config", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/config");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        file.delete();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromData() throws ConfParseException {
+        return ConfParse.fromData(data).BuildFromData();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromDataLazy() throws ConfParseException {
+        return ConfParse.fromData(data).lazy(true).BuildFromData();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromFileMappedLazy() throws ConfParseException {
+        return ConfParse.fromFile(file).memoryMapped(true).lazy(true).BuildFromFile();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromDataLazyHeaders() throws ConfParseException {
+        return ConfParse.fromData(data).lazyHeaders(true).BuildFromData();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromFileMappedLazyHeaders() throws ConfParseException {
+        return ConfParse.fromFile(file).memoryMapped(true).lazyHeaders(true).BuildFromFile();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromBytes() throws ConfParseException {
+        return ConfParse.fromBytes(bytes).BuildFromBytes();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromBytesDecoded() throws ConfParseException {
+        return ConfParse.fromData(new String(bytes, StandardCharsets.UTF_8)).BuildFromData();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromFile() throws ConfParseException {
+        return ConfParse.fromFile(file).BuildFromFile();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromFileMapped() throws ConfParseException {
+        return ConfParse.fromFile(file).memoryMapped(true).BuildFromFile();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromDataParallel() throws ConfParseException {
+        return ConfParse.fromData(data).parallel(true).BuildFromData();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromFileMappedParallel() throws ConfParseException {
+        return ConfParse.fromFile(file).memoryMapped(true).parallel(true).BuildFromFile();
+    }
+
+    @Benchmark
+    public ConfParseConfig fromURL() throws ConfParseException {
+        return ConfParse.fromURL(url).BuildFromURL();
+    }
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures typed value conversions, repeated on the same value and on a fresh
+ * value every time, and bulk conversions of a long list of numbers.
+ *
+ * @author Aayush Atharva
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueBenchmark {
+
+    private String intText;
+
+    private String doubleText;
+
+    private Value intValue;
+
+    private Value doubleValue;
+
+    private Key weights;
+
+    @Setup
+    public void setup() {
+        intText = "11211";
+        doubleText = "0.75";
+        intValue = new Value(intText);
+        doubleValue = new Value(doubleText);
+
+        weights = new Key("weights");
+        for (int i = 0; i < 10000; i++) {
+            weights.addValue(new Value(Integer.toString(i)));
+        }
+    }
+
+    @Benchmark
+    public int asInt() {
+        return intValue.asInt();
+    }
+
+    @Benchmark
+    public double asDouble() {
+        return doubleValue.asDouble();
+    }
+
+    @Benchmark
+    public int asIntFirstAccess() {
+        return new Value(intText).asInt();
+    }
+
+    @Benchmark
+    public double asDoubleFirstAccess() {
+        return new Value(doubleText).asDouble();
+    }
+
+    @Benchmark
+    public long sumIntArray() {
+        long sum = 0;
+        for (int i = 0; i < weights.getValueCount(); i++) {
+            sum += weights.getInt(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sumValues() {
+        long sum = 0;
+        for (Value weight : weights.getValues()) {
+            sum += weight.asInt();
+        }
+        return sum;
+    }
+}
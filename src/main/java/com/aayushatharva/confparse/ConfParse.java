@@ -1,247 +1,1020 @@
-/* 
- * Copyright (C) 2018 Aayush Atharva
- *
- * This program is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with this program.  If not, see <http://www.gnu.org/licenses/>.
- */
-package com.aayushatharva.confparse;
-
-import java.io.File;
-import java.net.URI;
-import java.net.URL;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import com.aayushatharva.confparse.config.Header;
-import com.aayushatharva.confparse.config.Key;
-import com.aayushatharva.confparse.config.Value;
-import com.aayushatharva.confparse.exceptions.ConfParseException;
-
-/**
- *
- * @author Aayush Atharva
- */
-public final class ConfParse {
-
-    /**
-     * Creates a new ConfParse config from the given file name or file path.
-     *
-     * @param FileName The file name or path.
-     * @return New ConfParse Config
-     * @throws ConfParseException If something went wrong during loading or
-     * parsing.
-     */
-    public static ConfParser fromFileName(String FileName) throws ConfParseException {
-        return fromFile(new File(FileName));
-    }
-
-    /**
-     * Creates a new ConfParse config from the given path.
-     *
-     * @param FilePath The path.
-     * @return A new ConfParse config.
-     * @throws ConfParseException If something went wrong during loading or
-     * parsing.
-     */
-    public static ConfParser fromFilePath(Path FilePath) throws ConfParseException {
-        return fromFile(FilePath.toFile());
-    }
-
-    /**
-     * Creates a new ConfParse config from the given URI.
-     *
-     * Useful if you want to load a file in the resources.
-     *
-     * @param FileURI The URI.
-     * @return A new ConfParse config.
-     * @throws ConfParseException If something went wrong during loading or
-     * parsing.
-     */
-    public static ConfParser fromFileURI(URI FileURI) throws ConfParseException {
-        return fromFile(new File(FileURI));
-    }
-
-    /**
-     * Creates a new ConfParse config from the given file.
-     *
-     * @param file The file.
-     * @return A new ConfParse config.
-     * @throws ConfParseException If something went wrong during loading or
-     * parsing.
-     */
-    public static ConfParser fromFile(File file) throws ConfParseException {
-        return new ConfParser(file);
-    }
-
-    /**
-     * Creates a new ConfParse config from the given file.
-     *
-     * @param URL The file URL.
-     * @return A new ConfParse config.
-     * @throws ConfParseException If something went wrong during loading or
-     * parsing.
-     */
-    public static ConfParser fromURL(URL URL) throws ConfParseException {
-        return new ConfParser(URL);
-    }
-
-    /**
-     * Creates a new ConfParse config from the given Data.
-     *
-     * @param Data Config Data
-     * @return A new ConfParse config.
-     * @throws ConfParseException If something went wrong during loading or
-     * parsing.
-     */
-    public static ConfParser fromData(String Data) throws ConfParseException {
-        return new ConfParser(Data);
-    }
-
-    /**
-     * A builder to add defaults.
-     */
-    public static class ConfParser {
-
-        /**
-         * The Config file.
-         */
-        private File File;
-
-        /**
-         * The Config File URL
-         */
-        private URL URL;
-
-        /**
-         * The Config File Data
-         */
-        private String Data;
-
-        /**
-         * All default headers for the Config.
-         */
-        private Map<String, Header> Headers = new HashMap<>();
-
-        /**
-         * Creates a new builder for the given Config file.
-         *
-         * @param File The Config file.
-         */
-        public ConfParser(File File) {
-            this.File = File;
-        }
-
-        /**
-         * Creates a new builder for the given Config file URL.
-         *
-         * @param URL The config file URL.
-         */
-        public ConfParser(URL URL) {
-            this.URL = URL;
-        }
-
-        /**
-         * Creates a new builder for the given Config Data.
-         *
-         * @param Data The config file Data.
-         */
-        public ConfParser(String Data) {
-            this.Data = Data;
-        }
-
-        /**
-         * Adds a default header with the given key and the values.
-         *
-         * @param header The default header to add.
-         * @param key The default key to add.
-         * @param values The default values to add.
-         * @return This ConfParse builder.
-         */
-        public ConfParser def(Header header, Key key, Value... values) {
-            Header h = Headers.get(header.getName());
-
-            if (h != null) {
-                Key k = h.getKey(key.getName());
-                if (k != null) {
-                    for (Value value : values) {
-                        k.addValue(value);
-                    }
-                } else {
-
-                    for (Value value : values) {
-                        key.addValue(value);
-                    }
-
-                    h.addKey(key);
-                }
-            } else {
-
-                for (Value value : values) {
-                    key.addValue(value);
-                }
-
-                header.addKey(key);
-
-                Headers.put(header.getName(), header);
-            }
-
-            return this;
-        }
-
-        /**
-         * Builds the ConfParse config from this builder based on File.
-         *
-         * @return The parsed ConfParse config.
-         * @throws ConfParseException If something went wrong during the
-         * parsing.
-         */
-        public ConfParseConfig BuildFromFile() throws ConfParseException {
-            return new ConfParseConfig(File, this);
-        }
-
-        /**
-         * Builds the ConfParse config from this builder based on URL.
-         *
-         * @return The parsed ConfParse config.
-         * @throws ConfParseException If something went wrong during the
-         * parsing.
-         */
-        public ConfParseConfig BuildFromURL() throws ConfParseException {
-            return new ConfParseConfig(URL, this);
-        }
-
-        /**
-         * Builds the ConfParse config from this builder based passed
-         * Data
-         *
-         * @return The parsed ConfParse config.
-         * @throws ConfParseException If something went wrong during the
-         * parsing.
-         */
-        public ConfParseConfig BuildFromData() throws ConfParseException {
-            return new ConfParseConfig(Data, this);
-        }
-
-        /**
-         * Returns an unmodifiable list of the default headers.
-         *
-         * @return The default headers as an unmodifiable list.
-         */
-        public List<Header> getHeaders() {
-            return Collections.unmodifiableList(new ArrayList<>(Headers.values()));
-        }
-    }
-}
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+
+/**
+ *
+ * @author Aayush Atharva
+ */
+public final class ConfParse {
+
+    /**
+     * Creates a new ConfParse config from the given file name or file path.
+     *
+     * @param FileName The file name or path.
+     * @return New ConfParse Config
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromFileName(String FileName) throws ConfParseException {
+        return fromFile(new File(FileName));
+    }
+
+    /**
+     * Creates a new ConfParse config from the given path.
+     *
+     * @param FilePath The path.
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromFilePath(Path FilePath) throws ConfParseException {
+        return fromFile(FilePath.toFile());
+    }
+
+    /**
+     * Creates a new ConfParse config from the given URI.
+     *
+     * Useful if you want to load a file in the resources.
+     *
+     * @param FileURI The URI.
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromFileURI(URI FileURI) throws ConfParseException {
+        return fromFile(new File(FileURI));
+    }
+
+    /**
+     * Creates a new ConfParse config from the given file. Files are always
+     * read as UTF-8, whichever way they are parsed.
+     *
+     * @param file The file.
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromFile(File file) throws ConfParseException {
+        return new ConfParser(file);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given file.
+     *
+     * @param URL The file URL.
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromURL(URL URL) throws ConfParseException {
+        return new ConfParser(URL);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given Data.
+     *
+     * @param Data Config Data
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromData(String Data) throws ConfParseException {
+        return new ConfParser(Data);
+    }
+
+    /**
+     * Creates a new ConfParse config from the UTF-8 encoded bytes remaining in
+     * the given buffer. The bytes are parsed in place without copying or
+     * decoding them, and values are only decoded when they are first read, so
+     * the buffer must not be modified while configs built from it are used.
+     *
+     * @param Bytes The config data.
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromBytes(ByteBuffer Bytes) throws ConfParseException {
+        return new ConfParser(Bytes);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given UTF-8 encoded bytes.
+     *
+     * @param Bytes The config data.
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     * @see #fromBytes(ByteBuffer)
+     */
+    public static ConfParser fromBytes(byte[] Bytes) throws ConfParseException {
+        return new ConfParser(ByteBuffer.wrap(Bytes));
+    }
+
+    /**
+     * Creates a new ConfParse config from the UTF-8 encoded data of the given
+     * channel. The channel is read to its end on the first build, and the
+     * bytes read are parsed in place like {@link #fromBytes(ByteBuffer)}. The
+     * channel is not closed.
+     *
+     * @param Channel The channel.
+     * @return A new ConfParse config.
+     * @throws ConfParseException If something went wrong during loading or
+     * parsing.
+     */
+    public static ConfParser fromChannel(ReadableByteChannel Channel) throws ConfParseException {
+        return new ConfParser(Channel);
+    }
+
+    /**
+     * Builds the configs of the given builders at the same time on the default
+     * executor.
+     *
+     * @param builders The builder instances.
+     * @return The future configs, in the order of the builders.
+     * @see #loadAll(Executor, ConfParser...)
+     */
+    public static CompletableFuture<List<ConfParseConfig>> loadAll(ConfParser... builders) {
+        return loadAll(ConfParseLoader.getDefaultExecutor(), builders);
+    }
+
+    /**
+     * Builds the configs of the given builders at the same time on the given
+     * executor. Every build keeps to the load timeout of its own builder.
+     *
+     * If one of the builds fails, the returned future fails with its error
+     * and all builds still running are cancelled. Cancelling the returned
+     * future cancels all builds still running as well.
+     *
+     * @param executor The executor, for example a virtual thread per task
+     * executor on Java 21 and later.
+     * @param builders The builder instances.
+     * @return The future configs, in the order of the builders.
+     */
+    public static CompletableFuture<List<ConfParseConfig>> loadAll(Executor executor, ConfParser... builders) {
+        return ConfParseLoader.submitAll(Arrays.asList(builders), executor);
+    }
+
+    /**
+     * A builder to add defaults.
+     */
+    public static class ConfParser {
+
+        /**
+         * The Config file.
+         */
+        private File File;
+
+        /**
+         * The Config File URL
+         */
+        private URL URL;
+
+        /**
+         * The Config File Data
+         */
+        private String Data;
+
+        /**
+         * The Config Data As UTF-8 Bytes
+         */
+        private ByteBuffer Bytes;
+
+        /**
+         * The channel the bytes are read from on the first build, or null
+         * once they have been read.
+         */
+        private ReadableByteChannel Channel;
+
+        /**
+         * All default headers for the Config.
+         */
+        private Map<String, Header> Headers = new HashMap<>();
+
+        /**
+         * All default headers for the Config in the order they were added.
+         */
+        private List<Header> HeaderList = new ArrayList<>();
+
+        /**
+         * The unmodifiable view of the default headers.
+         */
+        private List<Header> HeaderView = Collections.unmodifiableList(HeaderList);
+
+        /**
+         * Frozen copies of the default headers, built on first use.
+         */
+        private volatile List<Header> FrozenDefaults;
+
+        /**
+         * Whether config files are loaded by memory-mapping them.
+         */
+        private boolean MemoryMapped;
+
+        /**
+         * Whether the built config is frozen.
+         */
+        private boolean Freeze;
+
+        /**
+         * Whether reloads only parse the headers whose section changed.
+         */
+        private boolean Incremental;
+
+        /**
+         * Whether values are only created when they are first read.
+         */
+        private boolean Lazy;
+
+        /**
+         * Whether the keys of a header are only parsed when the header is
+         * first read.
+         */
+        private boolean LazyHeaders;
+
+        /**
+         * The pool large configs are parsed on in parallel, or null.
+         */
+        private ForkJoinPool ParallelPool;
+
+        /**
+         * The interner repeated names and values are shared through, or null.
+         */
+        private ConfParseInterner Interner;
+
+        /**
+         * Whether include directives are resolved.
+         */
+        private boolean ResolveIncludes;
+
+        /**
+         * The included fragments of the last build, reused by the next one.
+         */
+        private final ConfParseIncludes.Cache Fragments = new ConfParseIncludes.Cache();
+
+        /**
+         * The connect timeout for URLs in milliseconds.
+         */
+        private int ConnectTimeout = 10000;
+
+        /**
+         * The read timeout for URLs in milliseconds.
+         */
+        private int ReadTimeout = 30000;
+
+        /**
+         * The User-Agent sent to URLs.
+         */
+        private String UserAgent = "Mozilla/5.0 (Windows NT 10; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/58.0.1271.95 Safari/537.11";
+
+        /**
+         * The last-known-good cache file for URLs.
+         */
+        private File CacheFile;
+
+        /**
+         * The receiver of load measurements, or null.
+         */
+        private ConfParseMetrics Metrics;
+
+        /**
+         * The time an asynchronous build may take in milliseconds, 0 for no
+         * limit.
+         */
+        private long LoadTimeout;
+
+        /**
+         * The fetcher of the URL, created on first use.
+         */
+        private ConfParseFetcher Fetcher;
+
+        /**
+         * Creates a new builder for the given Config file.
+         *
+         * @param File The Config file.
+         */
+        public ConfParser(File File) {
+            this.File = File;
+        }
+
+        /**
+         * Creates a new builder for the given Config file URL.
+         *
+         * @param URL The config file URL.
+         */
+        public ConfParser(URL URL) {
+            this.URL = URL;
+        }
+
+        /**
+         * Creates a new builder for the given Config Data.
+         *
+         * @param Data The config file Data.
+         */
+        public ConfParser(String Data) {
+            this.Data = Data;
+        }
+
+        /**
+         * Creates a new builder for the given Config Data as UTF-8 bytes.
+         *
+         * @param Bytes The config file Data.
+         */
+        public ConfParser(ByteBuffer Bytes) {
+            this.Bytes = Bytes;
+        }
+
+        /**
+         * Creates a new builder for the Config Data of the given channel.
+         *
+         * @param Channel The channel.
+         */
+        public ConfParser(ReadableByteChannel Channel) {
+            this.Channel = Channel;
+        }
+
+        /**
+         * Adds a default header with the given key and the values.
+         *
+         * @param header The default header to add.
+         * @param key The default key to add.
+         * @param values The default values to add.
+         * @return This ConfParse builder.
+         */
+        public ConfParser def(Header header, Key key, Value... values) {
+            FrozenDefaults = null;
+            Header h = Headers.get(header.getName());
+
+            if (h != null) {
+                Key k = h.getKey(key.getName());
+                if (k != null) {
+                    for (Value value : values) {
+                        k.addValue(value);
+                    }
+                } else {
+
+                    for (Value value : values) {
+                        key.addValue(value);
+                    }
+
+                    h.addKey(key);
+                }
+            } else {
+
+                for (Value value : values) {
+                    key.addValue(value);
+                }
+
+                header.addKey(key);
+
+                Headers.put(header.getName(), header);
+                HeaderList.add(header);
+            }
+
+            return this;
+        }
+
+        /**
+         * Sets whether config files are loaded by memory-mapping them instead
+         * of reading them through a reader. Mapped files are always decoded as
+         * UTF-8 and values are only decoded when they are first read, which
+         * keeps large files from being copied onto the heap as a whole.
+         *
+         * Only used when building from a file.
+         *
+         * @param memoryMapped True to memory-map config files.
+         * @return This ConfParse builder.
+         */
+        public ConfParser memoryMapped(boolean memoryMapped) {
+            this.MemoryMapped = memoryMapped;
+            return this;
+        }
+
+        /**
+         * Sets whether the built config is frozen into an immutable snapshot
+         * after the defaults have been applied. A watched or polled config
+         * keeps frozen headers, but is not a snapshot itself, as reloads
+         * replace them.
+         *
+         * @param freeze True to freeze the built config.
+         * @return This ConfParse builder.
+         * @see ConfParseConfig#freeze()
+         */
+        public ConfParser freeze(boolean freeze) {
+            this.Freeze = freeze;
+            return this;
+        }
+
+        /**
+         * Sets whether reloads of a watched config only parse the headers
+         * whose section of the file changed. Every header section is hashed,
+         * and on reload the header objects of unchanged sections are reused
+         * instead of being parsed again.
+         *
+         * Only used when building from a file. The file is read as a whole
+         * instead of being streamed.
+         *
+         * @param incremental True to reload incrementally.
+         * @return This ConfParse builder.
+         * @see ConfParseWatcher#reload()
+         */
+        public ConfParser incremental(boolean incremental) {
+            this.Incremental = incremental;
+            return this;
+        }
+
+        /**
+         * Sets whether values are only created when they are first read. Keys
+         * then hold just the offsets of their values in the config data, which
+         * is kept in memory for as long as the config is used, and a value is
+         * created once it is first read through the key. This makes loading
+         * faster and keeps less on the heap when most of a config is never
+         * read.
+         *
+         * Keys of a lazy config are frozen. Files and URLs are read as a whole
+         * instead of being streamed, and values are not shared through the
+         * interner.
+         *
+         * @param lazy True to create values lazily.
+         * @return This ConfParse builder.
+         */
+        public ConfParser lazy(boolean lazy) {
+            this.Lazy = lazy;
+            return this;
+        }
+
+        /**
+         * Sets whether the keys of a header are only parsed when the header is
+         * first read. Loading then only scans the config for header lines and
+         * keeps where the section of every header is in the config data, which
+         * is kept in memory for as long as the config is used. The section is
+         * parsed on the first read of a key of the header, once, even if it is
+         * read by several threads at the same time.
+         *
+         * Such headers are frozen, and files and URLs are read as a whole
+         * instead of being streamed. Can be combined with {@link #lazy(boolean)}
+         * and is ignored for incremental reloads.
+         *
+         * @param lazyHeaders True to parse the keys of headers lazily.
+         * @return This ConfParse builder.
+         */
+        public ConfParser lazyHeaders(boolean lazyHeaders) {
+            this.LazyHeaders = lazyHeaders;
+            return this;
+        }
+
+        /**
+         * Sets whether large configs are parsed in parallel on the common
+         * pool. The config is split into parts at header lines, which are
+         * parsed at the same time and merged in order, so the result and the
+         * errors are the same as with a sequential parse.
+         *
+         * Files are read as a whole instead of being streamed. Data from URLs
+         * is only parsed in parallel if a cache file is set. Ignored for
+         * incremental reloads.
+         *
+         * @param parallel True to parse large configs in parallel.
+         * @return This ConfParse builder.
+         */
+        public ConfParser parallel(boolean parallel) {
+            return parallel(parallel ? ForkJoinPool.commonPool() : null);
+        }
+
+        /**
+         * Sets the pool large configs are parsed on in parallel.
+         *
+         * @param pool The pool, or null to parse sequentially.
+         * @return This ConfParse builder.
+         * @see #parallel(boolean)
+         */
+        public ConfParser parallel(ForkJoinPool pool) {
+            this.ParallelPool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the interner repeated header names, key names and values are
+         * shared through. Every distinct name and value is then only kept
+         * once, and the interner tells how much memory that saved.
+         *
+         * Use a new interner for every build to share within one config, or
+         * the same interner for many builds to share across configs and
+         * reloads. Values are decoded while parsing, even from memory-mapped
+         * files.
+         *
+         * @param interner The interner, or null to not share.
+         * @return This ConfParse builder.
+         * @see ConfParseInterner#global()
+         */
+        public ConfParser intern(ConfParseInterner interner) {
+            this.Interner = interner;
+            return this;
+        }
+
+        /**
+         * Sets whether {@code @include} directives are resolved. A line
+         * {@code @include path} puts the headers of the config at the given
+         * path into this config as if they had been written in its place, and
+         * ends the current header. Headers written after the directive win
+         * over included headers of the same name.
+         *
+         * Paths are resolved relative to the file or URL of the including
+         * config. Included configs may include further configs, but not any
+         * config including them. All includes are loaded in parallel, on the
+         * pool set with {@link #parallel(ForkJoinPool)} or the common pool.
+         * Parsed includes are cached and shared by all configs including them
+         * until the included file, or anything it includes, changes.
+         *
+         * Incremental reloads parse the whole file when includes are
+         * resolved, and watchers only watch the including file.
+         *
+         * @param resolveIncludes True to resolve include directives.
+         * @return This ConfParse builder.
+         */
+        public ConfParser includes(boolean resolveIncludes) {
+            this.ResolveIncludes = resolveIncludes;
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout for URLs. Defaults to 10 seconds.
+         *
+         * @param millis The timeout in milliseconds, 0 to wait forever.
+         * @return This ConfParse builder.
+         */
+        public ConfParser connectTimeout(int millis) {
+            this.ConnectTimeout = millis;
+            this.Fetcher = null;
+            return this;
+        }
+
+        /**
+         * Sets the read timeout for URLs. Defaults to 30 seconds.
+         *
+         * @param millis The timeout in milliseconds, 0 to wait forever.
+         * @return This ConfParse builder.
+         */
+        public ConfParser readTimeout(int millis) {
+            this.ReadTimeout = millis;
+            this.Fetcher = null;
+            return this;
+        }
+
+        /**
+         * Sets the User-Agent sent to URLs.
+         *
+         * @param userAgent The User-Agent.
+         * @return This ConfParse builder.
+         */
+        public ConfParser userAgent(String userAgent) {
+            this.UserAgent = userAgent;
+            this.Fetcher = null;
+            return this;
+        }
+
+        /**
+         * Sets the last-known-good cache file for URLs. Every successfully
+         * parsed download is stored in this file. When the URL cannot be
+         * reached in time on build, the config is built from the cached data
+         * instead, and unchanged data is not downloaded again.
+         *
+         * @param cacheFile The cache file, or null for no cache.
+         * @return This ConfParse builder.
+         */
+        public ConfParser cacheFile(File cacheFile) {
+            this.CacheFile = cacheFile;
+            this.Fetcher = null;
+            return this;
+        }
+
+        /**
+         * Sets the time an asynchronous build may take. A build which takes
+         * longer fails and is interrupted. The default is no limit.
+         *
+         * A build from a channel passed by the caller is not interrupted, as
+         * the interrupt would close the channel. Its future still fails on
+         * time, but the build goes on reading the channel in the background.
+         *
+         * @param millis The load timeout in milliseconds, 0 for none.
+         * @return This ConfParse builder.
+         * @see #BuildAsync(Executor)
+         */
+        public ConfParser loadTimeout(long millis) {
+            this.LoadTimeout = millis;
+            return this;
+        }
+
+        /**
+         * Sets the receiver of measurements of every load, fetch and reload of
+         * configs built by this builder.
+         *
+         * @param metrics The metrics, or null for none.
+         * @return This ConfParse builder.
+         * @see ConfParseJfr
+         */
+        public ConfParser metrics(ConfParseMetrics metrics) {
+            this.Metrics = metrics;
+            this.Fetcher = null;
+            return this;
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based on File.
+         *
+         * @return The parsed ConfParse config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing.
+         */
+        public ConfParseConfig BuildFromFile() throws ConfParseException {
+            return build(new ConfParseConfig(File, this));
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based on File, reusing
+         * the unchanged headers of the given previous config in incremental
+         * mode.
+         *
+         * @param previous The previous config of the same file.
+         * @return The parsed ConfParse config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing.
+         */
+        ConfParseConfig BuildFromFile(ConfParseConfig previous) throws ConfParseException {
+            return build(new ConfParseConfig(File, this, previous));
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based on File and
+         * keeps it up to date with the file. The returned watcher has to be
+         * closed once the config is no longer needed.
+         *
+         * @param debounceMillis The time changes of the file have to settle
+         * before it is parsed again, in milliseconds.
+         * @return The watcher holding the config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing or the file could not be watched.
+         * @throws IllegalStateException If this builder is not based on File.
+         */
+        public ConfParseWatcher BuildWatched(long debounceMillis) throws ConfParseException {
+            if (File == null) {
+                throw new IllegalStateException("Only configs built from a file can be watched");
+            }
+
+            return new ConfParseWatcher(this, File, debounceMillis);
+        }
+
+        /**
+         * Builds a precompiled image of the config from this builder based on
+         * File. If the given image file was compiled from the current version
+         * of the file and the same defaults, it is memory-mapped and used
+         * without parsing the file at all. Otherwise the file is parsed and
+         * compiled into a new image, which is written to the image file for
+         * the next start.
+         *
+         * The version of the file is told by its length and modification
+         * time. Included files are not part of it, so if includes are
+         * resolved the file is always parsed and no image file is read or
+         * written.
+         *
+         * @param image The image file.
+         * @return The precompiled config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing, or if the config is too large for an image.
+         * @throws IllegalStateException If this builder is not based on File.
+         */
+        public ConfParseImage BuildPrecompiled(File image) throws ConfParseException {
+            if (File == null) {
+                throw new IllegalStateException("Only configs built from a file can be precompiled");
+            }
+
+            long length = File.length();
+            long modified = File.lastModified();
+            long defaults = ConfParseImage.fingerprint(HeaderList);
+
+            // An Image Can Not Tell If An Included File Changed
+            if (ResolveIncludes) {
+                return ConfParseImage.compile(new ConfParseConfig(File, this), null, length, modified, defaults);
+            }
+
+            ConfParseImage precompiled = ConfParseImage.load(image, length, modified, defaults);
+            if (precompiled != null) {
+                return precompiled;
+            }
+
+            // Image Is Missing Or Stale, Fall Back To The Text
+            return ConfParseImage.compile(new ConfParseConfig(File, this), image, length, modified, defaults);
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based on URL.
+         *
+         * @return The parsed ConfParse config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing.
+         */
+        public ConfParseConfig BuildFromURL() throws ConfParseException {
+            return build(new ConfParseConfig(URL, this));
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based on the given
+         * response of the URL. The validators of the response are not kept
+         * until the caller commits it, once the config has been published.
+         *
+         * @param response The response of the URL.
+         * @return The parsed ConfParse config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing.
+         */
+        ConfParseConfig BuildFromURL(ConfParseFetcher.Response response) throws ConfParseException {
+            return build(new ConfParseConfig(URL, this, response));
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based on URL and keeps
+         * it up to date by polling the URL. Unchanged data is detected with
+         * conditional requests and not parsed again. The returned watcher has
+         * to be closed once the config is no longer needed.
+         *
+         * @param intervalMillis The time between two polls, in milliseconds.
+         * @return The watcher holding the config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing.
+         * @throws IllegalStateException If this builder is not based on URL.
+         */
+        public ConfParseWatcher BuildPolled(long intervalMillis) throws ConfParseException {
+            if (URL == null) {
+                throw new IllegalStateException("Only configs built from a URL can be polled");
+            }
+
+            return new ConfParseWatcher(this, URL, intervalMillis);
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based passed
+         * Data
+         *
+         * @return The parsed ConfParse config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing.
+         */
+        public ConfParseConfig BuildFromData() throws ConfParseException {
+            return build(new ConfParseConfig(Data, this));
+        }
+
+        /**
+         * Builds the ConfParse config from this builder based on the passed
+         * bytes or channel.
+         *
+         * @return The parsed ConfParse config.
+         * @throws ConfParseException If something went wrong during the
+         * reading or parsing.
+         */
+        public ConfParseConfig BuildFromBytes() throws ConfParseException {
+            return build(new ConfParseConfig(this));
+        }
+
+        /**
+         * Builds the ConfParse config from this builder on the default
+         * executor without blocking the caller.
+         *
+         * @return The future config.
+         * @see #BuildAsync(Executor)
+         */
+        public CompletableFuture<ConfParseConfig> BuildAsync() {
+            return BuildAsync(ConfParseLoader.getDefaultExecutor());
+        }
+
+        /**
+         * Builds the ConfParse config from this builder on the given executor
+         * without blocking the caller. The config is built from the File,
+         * URL, Data or bytes of this builder.
+         *
+         * The future fails with the {@link ConfParseException} of the build,
+         * or once the load timeout has passed. Cancelling the future, or the
+         * timeout passing, interrupts the build, unless it reads a channel
+         * passed by the caller, which the interrupt would close.
+         *
+         * @param executor The executor, for example a virtual thread per task
+         * executor on Java 21 and later.
+         * @return The future config.
+         */
+        public CompletableFuture<ConfParseConfig> BuildAsync(Executor executor) {
+            return ConfParseLoader.submit(this, executor, LoadTimeout);
+        }
+
+        /**
+         * Builds the ConfParse config from the File, URL, Data or bytes of
+         * this builder.
+         *
+         * @return The parsed ConfParse config.
+         * @throws ConfParseException If something went wrong during the
+         * parsing.
+         */
+        ConfParseConfig Build() throws ConfParseException {
+            if (File != null) {
+                return BuildFromFile();
+            }
+            if (URL != null) {
+                return BuildFromURL();
+            }
+            if (Bytes != null || Channel != null) {
+                return BuildFromBytes();
+            }
+            return BuildFromData();
+        }
+
+        /**
+         * Returns whether this builder reads its config from a channel passed
+         * by the caller which has not been read yet.
+         *
+         * @return True if the channel is still to be read.
+         */
+        boolean readsChannel() {
+            return Channel != null;
+        }
+
+        /**
+         * Returns a description of where this builder loads its config from.
+         *
+         * @return The file path, the URL, "bytes" or "data".
+         */
+        String getSource() {
+            if (File != null) {
+                return File.getPath();
+            }
+            if (URL != null) {
+                return URL.toString();
+            }
+            if (Bytes != null || Channel != null) {
+                return "bytes";
+            }
+            return "data";
+        }
+
+        /**
+         * Returns the bytes of the config data, reading them from the channel
+         * on first use.
+         *
+         * @return A buffer over the bytes.
+         * @throws ConfParseException If the channel could not be read.
+         */
+        synchronized ByteBuffer getBytes() throws ConfParseException {
+            if (Bytes == null) {
+                ByteBuffer buffer = ByteBuffer.allocate(8192);
+                try {
+                    while (Channel.read(buffer) >= 0) {
+                        if (!buffer.hasRemaining()) {
+                            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                            buffer.flip();
+                            larger.put(buffer);
+                            buffer = larger;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new ConfParseLoadConfigException("Could not read config data from channel");
+                }
+                buffer.flip();
+                Bytes = buffer;
+                Channel = null;
+            }
+            return Bytes.duplicate();
+        }
+
+        /**
+         * Returns an unmodifiable list of the default headers.
+         *
+         * @return The default headers as an unmodifiable list.
+         */
+        public List<Header> getHeaders() {
+            return HeaderView;
+        }
+
+        /**
+         * Returns frozen copies of the default headers. Built configs share
+         * them, so they can never be modified through a config.
+         *
+         * @return The frozen default headers.
+         */
+        List<Header> getDefaults() {
+            List<Header> defaults = FrozenDefaults;
+            if (defaults == null) {
+                defaults = new ArrayList<>(HeaderList.size());
+                for (Header header : HeaderList) {
+                    defaults.add(header.freeze());
+                }
+                FrozenDefaults = defaults;
+            }
+            return defaults;
+        }
+
+        /**
+         * Applies the build options to a newly built config.
+         *
+         * @param config The built config.
+         * @return The config to hand out.
+         */
+        private ConfParseConfig build(ConfParseConfig config) {
+            return Freeze ? config.freeze() : config;
+        }
+
+        /**
+         * Returns whether config files are loaded by memory-mapping them.
+         *
+         * @return True if config files are memory-mapped.
+         */
+        boolean isMemoryMapped() {
+            return MemoryMapped;
+        }
+
+        /**
+         * Returns whether reloads only parse the changed headers.
+         *
+         * @return True if reloads are incremental.
+         */
+        boolean isIncremental() {
+            return Incremental && !ResolveIncludes;
+        }
+
+        /**
+         * Returns whether large configs are parsed in parallel.
+         *
+         * @return True if large configs are parsed in parallel.
+         */
+        boolean isParallel() {
+            return ParallelPool != null;
+        }
+
+        /**
+         * Returns the receiver of load measurements.
+         *
+         * @return The metrics, or null if there are none.
+         */
+        ConfParseMetrics getMetrics() {
+            return Metrics;
+        }
+
+        /**
+         * Returns a new parser with the parse options of this builder.
+         *
+         * @param headers The map to put the parsed headers into.
+         * @return The parser.
+         */
+        ConfParseParser newParser(Map<String, Header> headers) {
+            ConfParseIncludes includes = null;
+            if (ResolveIncludes) {
+                includes = new ConfParseIncludes(File, URL, ConnectTimeout, ReadTimeout, UserAgent, ParallelPool != null ? ParallelPool : ForkJoinPool.commonPool(), Fragments);
+            }
+
+            return new ConfParseParser(headers).parallel(ParallelPool).intern(Interner).includes(includes).lazy(Lazy).lazyHeaders(LazyHeaders);
+        }
+
+        /**
+         * Returns the fetcher of the URL.
+         *
+         * @return The fetcher.
+         */
+        synchronized ConfParseFetcher getFetcher() {
+            if (Fetcher == null) {
+                Fetcher = new ConfParseFetcher(URL, ConnectTimeout, ReadTimeout, UserAgent, CacheFile, Metrics);
+            }
+            return Fetcher;
+        }
+    }
+}
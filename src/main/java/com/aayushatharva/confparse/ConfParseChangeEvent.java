@@ -0,0 +1,213 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.Collections;
+import java.util.List;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+
+/**
+ * A change of a header or a key between two versions of a reloaded config.
+ *
+ * Header events have no key name. A header is added or removed as a whole,
+ * or modified when at least one of its keys changed. Key events describe
+ * a single key and carry its old and new values.
+ *
+ * @author Aayush Atharva
+ */
+public final class ConfParseChangeEvent {
+
+    /**
+     * The type of a change.
+     */
+    public enum Type {
+
+        /**
+         * The header or key was added.
+         */
+        ADDED,
+
+        /**
+         * The header or key was removed.
+         */
+        REMOVED,
+
+        /**
+         * The header has changed keys or the key has changed values.
+         */
+        MODIFIED
+    }
+
+    /**
+     * The type of the change.
+     */
+    private final Type type;
+
+    /**
+     * The header before the change, or null if it was added.
+     */
+    private final Header oldHeader;
+
+    /**
+     * The header after the change, or null if it was removed.
+     */
+    private final Header newHeader;
+
+    /**
+     * The key before the change, or null if it was added or this is a header
+     * event.
+     */
+    private final Key oldKey;
+
+    /**
+     * The key after the change, or null if it was removed or this is a header
+     * event.
+     */
+    private final Key newKey;
+
+    /**
+     * The name of the changed header.
+     */
+    private final String headerName;
+
+    /**
+     * The name of the changed key, or null if this is a header event.
+     */
+    private final String keyName;
+
+    /**
+     * Creates a new change event.
+     *
+     * @param type The type of the change.
+     * @param headerName The name of the changed header.
+     * @param oldHeader The header before the change.
+     * @param newHeader The header after the change.
+     * @param keyName The name of the changed key, or null for a header event.
+     * @param oldKey The key before the change.
+     * @param newKey The key after the change.
+     */
+    ConfParseChangeEvent(Type type, String headerName, Header oldHeader, Header newHeader, String keyName, Key oldKey, Key newKey) {
+        this.type = type;
+        this.headerName = headerName;
+        this.oldHeader = oldHeader;
+        this.newHeader = newHeader;
+        this.keyName = keyName;
+        this.oldKey = oldKey;
+        this.newKey = newKey;
+    }
+
+    /**
+     * Returns the type of the change.
+     *
+     * @return The type of the change.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns whether this event describes a header rather than a key.
+     *
+     * @return True if this is a header event.
+     */
+    public boolean isHeaderEvent() {
+        return keyName == null;
+    }
+
+    /**
+     * Returns the name of the changed header.
+     *
+     * @return The name of the header.
+     */
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    /**
+     * Returns the name of the changed key.
+     *
+     * @return The name of the key, or null if this is a header event.
+     */
+    public String getKeyName() {
+        return keyName;
+    }
+
+    /**
+     * Returns the header before the change.
+     *
+     * @return The old header, or null if it was added.
+     */
+    public Header getOldHeader() {
+        return oldHeader;
+    }
+
+    /**
+     * Returns the header after the change.
+     *
+     * @return The new header, or null if it was removed.
+     */
+    public Header getNewHeader() {
+        return newHeader;
+    }
+
+    /**
+     * Returns the key before the change.
+     *
+     * @return The old key, or null if it was added or this is a header event.
+     */
+    public Key getOldKey() {
+        return oldKey;
+    }
+
+    /**
+     * Returns the key after the change.
+     *
+     * @return The new key, or null if it was removed or this is a header
+     * event.
+     */
+    public Key getNewKey() {
+        return newKey;
+    }
+
+    /**
+     * Returns the values of the key before the change.
+     *
+     * @return The old values, empty if there was no key.
+     */
+    public List<Value> getOldValues() {
+        return oldKey == null ? Collections.emptyList() : oldKey.getValues();
+    }
+
+    /**
+     * Returns the values of the key after the change.
+     *
+     * @return The new values, empty if there is no key.
+     */
+    public List<Value> getNewValues() {
+        return newKey == null ? Collections.emptyList() : newKey.getValues();
+    }
+
+    @Override
+    public String toString() {
+        if (keyName == null) {
+            return type + " " + headerName;
+        }
+        return type + " " + headerName + "/" + keyName + " " + getOldValues() + " -> " + getNewValues();
+    }
+}
@@ -1,338 +1,930 @@
-/* 
- * Copyright (C) 2018 Aayush Atharva
- *
- * This program is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with this program.  If not, see <http://www.gnu.org/licenses/>.
- */
-package com.aayushatharva.confparse;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import com.aayushatharva.confparse.config.Header;
-import com.aayushatharva.confparse.config.Key;
-import com.aayushatharva.confparse.config.Value;
-import com.aayushatharva.confparse.exceptions.ConfParseEmptyConfigException;
-import com.aayushatharva.confparse.exceptions.ConfParseException;
-import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
-import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
-
-/**
- *
- * @author Aayush Atharva
- */
-public class ConfParseConfig {
-
-    /**
-     * The config file line by line as a list.
-     */
-    private List<String> Config = new ArrayList<>();
-
-    /**
-     * All headers from the config.
-     */
-    private Map<String, Header> headers = new HashMap<>();
-
-    /**
-     * Creates a new ConfParse config from the given file and builder instance.
-     *
-     * @param file The file.
-     * @param ConfParseBuilder The builder instance.
-     * @throws ConfParseException If something went wrong.
-     */
-    protected ConfParseConfig(File file, ConfParse.ConfParser ConfParseBuilder) throws ConfParseException {
-
-        this(file);
-
-        // Check if there are default values
-        if (ConfParseBuilder.getHeaders().isEmpty()) {
-            return;
-        }
-
-        // Sets possible default values
-        for (Header builderHeader : ConfParseBuilder.getHeaders()) {
-            Header header = headers.get(builderHeader.getName());
-            if (header == null) {
-                headers.put(builderHeader.getName(), builderHeader);
-            } else {
-                for (Key builderKey : builderHeader.getKeys()) {
-                    if (!header.hasKey(builderKey.getName())) {
-                        header.addKey(builderKey);
-                    } else {
-                        Key key = header.getKey(builderKey.getName());
-                        if (!key.hasValues()) {
-                            builderKey.getValues().forEach(key::addValue);
-                        }
-                    }
-                }
-            }
-        }
-
-    }
-
-    /**
-     * Creates a new ConfParse config from the given file.
-     *
-     * @param file The config file.
-     * @throws ConfParseException If something went wrong.
-     */
-    protected ConfParseConfig(File file) throws ConfParseException {
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-            String Line;
-            while ((Line = bufferedReader.readLine()) != null) {
-                // Check If Line Is Not Empty Or Line Is Not Comment
-                if (!Line.isEmpty() && !Line.startsWith("#")) {
-                    Config.add(Line.trim());
-                }
-            }
-        } catch (IOException e) {
-            throw new ConfParseLoadConfigException("Could not load config file '" + file.getName() + "'");   // Throw File Not Found ConfParseException
-        }
-
-        // Check If Config Is Empty Or Not
-        if (Config.isEmpty()) {
-            throw new ConfParseEmptyConfigException("Config file " + file.getName() + " is empty");     // Throw ConfParseEmptyConfigException
-        }
-
-        parse(); // Start Parsing File
-    }
-
-    /**
-     * Creates a new ConfParse config from the given URL and builder instance.
-     *
-     * @param url The File URL
-     * @param ConfParseBuilder The builder instance.
-     * @throws ConfParseException If something went wrong.
-     */
-    protected ConfParseConfig(URL url, ConfParse.ConfParser ConfParseBuilder) throws ConfParseException {
-
-        this(url);
-
-        // Check if there are default values
-        if (ConfParseBuilder.getHeaders().isEmpty()) {
-            return;
-        }
-
-        // Sets possible default values
-        for (Header builderHeader : ConfParseBuilder.getHeaders()) {
-            Header header = headers.get(builderHeader.getName());
-            if (header == null) {
-                headers.put(builderHeader.getName(), builderHeader);
-            } else {
-                for (Key builderKey : builderHeader.getKeys()) {
-                    if (!header.hasKey(builderKey.getName())) {
-                        header.addKey(builderKey);
-                    } else {
-                        Key key = header.getKey(builderKey.getName());
-                        if (!key.hasValues()) {
-                            builderKey.getValues().forEach(key::addValue);
-                        }
-                    }
-                }
-            }
-        }
-
-    }
-
-    /**
-     * Creates a new ConfParse config from the given file URL.
-     *
-     * @param URL URL of ConfParse config file
-     * @throws ConfParseException If Something went wrong
-     */
-    protected ConfParseConfig(URL URL) throws ConfParseException {
-
-        BufferedReader reader = null;
-        URLConnection connection;
-
-        try {
-            connection = URL.openConnection();
-            connection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/58.0.1271.95 Safari/537.11");
-            connection.connect();
-
-            reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
-            String Line;
-            while ((Line = reader.readLine()) != null) {
-                if (!Line.isEmpty() && !Line.startsWith("#")) {
-                    Config.add(Line.trim());
-                }
-            }
-
-            reader.close();
-
-        } catch (IOException ex) {
-            throw new ConfParseLoadConfigException("Could not load config file data from '" + URL.toString() + "'");   // Throw File Not Found ConfParseException
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException ex) {
-                }
-            }
-        }
-
-        // Check If Config Is Empty Or Not
-        if (Config.isEmpty()) {
-            throw new ConfParseEmptyConfigException("Config file data at " + URL.toString() + " is empty");     // Throw ConfParseEmptyConfigException
-        }
-
-        parse(); // Start Parsing File
-    }
-
-    /**
-     * Creates a new ConfParse config from the given URL and builder instance.
-     *
-     * @param Data The Config Data
-     * @param ConfParseBuilder The builder instance.
-     * @throws ConfParseException If something went wrong.
-     */
-    protected ConfParseConfig(String Data, ConfParse.ConfParser ConfParseBuilder) throws ConfParseException {
-
-        this(Data);
-
-        // Check if there are default values
-        if (ConfParseBuilder.getHeaders().isEmpty()) {
-            return;
-        }
-
-        // Sets possible default values
-        for (Header builderHeader : ConfParseBuilder.getHeaders()) {
-            Header header = headers.get(builderHeader.getName());
-            if (header == null) {
-                headers.put(builderHeader.getName(), builderHeader);
-            } else {
-                for (Key builderKey : builderHeader.getKeys()) {
-                    if (!header.hasKey(builderKey.getName())) {
-                        header.addKey(builderKey);
-                    } else {
-                        Key key = header.getKey(builderKey.getName());
-                        if (!key.hasValues()) {
-                            builderKey.getValues().forEach(key::addValue);
-                        }
-                    }
-                }
-            }
-        }
-
-    }
-
-    /**
-     * Creates a new ConfParse config from the given Data
-     *
-     * @param Data Data of ConfParse config file
-     * @throws ConfParseException If Something went wrong
-     */
-    protected ConfParseConfig(String Data) throws ConfParseException {
-        String[] ConfParseData = Data.split("\n");
-
-        for (String Line : ConfParseData) {
-            if (!Line.isEmpty() && !Line.startsWith("#")) {
-                Config.add(Line.trim());
-            }
-        }
-
-        // Check If Config Is Empty Or Not
-        if (Config.isEmpty()) {
-            throw new ConfParseEmptyConfigException("Config file data is empty");     // Throw ConfParseEmptyConfigException
-        }
-
-        parse(); // Start Parsing File
-    }
-
-    /**
-     * Parses the config lines.
-     *
-     * @throws ConfParseException If something went wrong during the parsing.
-     */
-    private void parse() throws ConfParseException {
-        Header currentHeader = null;
-
-        for (int i = 0; i < Config.size(); i++) {
-            String line = Config.get(i);
-
-            if (line.endsWith(":")) {
-
-                if (currentHeader != null) {
-                    headers.put(currentHeader.getName(), currentHeader);
-                }
-
-                currentHeader = new Header(line.substring(0, line.length() - 1));
-            } else {
-                String[] info = line.split(" ");
-                if (info.length > 0) {
-                    String key = info[0];
-                    String[] options = new String[info.length - 1];
-                    System.arraycopy(info, 1, options, 0, options.length);
-
-                    Key keyData = new Key(key);
-                    for (String option : options) {
-                        keyData.addValue(new Value(option));
-                    }
-
-                    if (currentHeader != null) {
-                        currentHeader.addKey(keyData);
-                    } else {
-                        throw new ConfParseInvalidConfigException("at least one header at the top is needed");
-                    }
-                }
-            }
-
-            // Add the last header
-            if (i == Config.size() - 1) {
-                if (currentHeader != null) {
-                    headers.put(currentHeader.getName(), currentHeader);
-                }
-            }
-        }
-    }
-
-    /**
-     * Returns whether the given header exists or not.
-     *
-     * @param header The header to check.
-     * @return True or false whether the given header exists or not.
-     */
-    public boolean hasHeader(String header) {
-        return headers.containsKey(header);
-    }
-
-    /**
-     * Returns whether the given header and key exists or not.
-     *
-     * @param header The header to check.
-     * @param key The key to check.
-     * @return True or false whether the given header and key exists or not.
-     */
-    public boolean hasHeaderAndKey(String header, String key) {
-        return headers.containsKey(header) && headers.get(header).hasKey(key);
-    }
-
-    /**
-     * Returns the header if it exists otherwise it returns null.
-     *
-     * @param header The header name.
-     * @return The header object instance.
-     */
-    public Header getHeader(String header) {
-        return headers.get(header);
-    }
-}
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.exceptions.ConfParseEmptyConfigException;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+
+/**
+ *
+ * @author Aayush Atharva
+ */
+public class ConfParseConfig {
+
+    /**
+     * All headers from the config. The map is never modified once the config
+     * has been built. A reload replaces it as a whole, so readers always see
+     * either the old or the new headers.
+     */
+    private volatile Map<String, Header> headers = new HashMap<>();
+
+    /**
+     * The hashes of the header sections of the config file if it was parsed
+     * incrementally, otherwise null.
+     */
+    private Map<String, Long> sectionHashes;
+
+    /**
+     * The names of the headers which changed compared to the previous config
+     * if the config file was parsed incrementally, otherwise null.
+     */
+    private Set<String> changedHeaders;
+
+    /**
+     * Whether this config is a frozen snapshot.
+     */
+    private final boolean frozen;
+
+    /**
+     * Whether this config is kept up to date by a watcher or poller, which
+     * replaces its headers on every reload.
+     */
+    private volatile boolean watched;
+
+    /**
+     * The lookup index over the headers if this config is frozen, otherwise
+     * null. Replaced together with the headers on reload.
+     */
+    private volatile ConfParseIndex index;
+
+    /**
+     * The config which is layered over the base config if this config is a
+     * layered config, otherwise null.
+     */
+    private final ConfParseConfig upper;
+
+    /**
+     * The config lookups fall through to if this config is a layered config,
+     * otherwise null.
+     */
+    private final ConfParseConfig base;
+
+    /**
+     * The merged headers of the current versions of both layers, or null
+     * until they are needed.
+     */
+    private volatile Layers layers;
+
+    /**
+     * The number of lookups of headers and keys which did not exist.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The listeners which are notified about changes on reload.
+     */
+    private final List<Subscription> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The executor the listeners are notified on, or null until the default
+     * executor is needed.
+     */
+    private volatile Executor listenerExecutor;
+
+    /**
+     * Creates a new ConfParse config from the given file and builder instance.
+     *
+     * @param file The file.
+     * @param ConfParseBuilder The builder instance.
+     * @throws ConfParseException If something went wrong.
+     */
+    protected ConfParseConfig(File file, ConfParse.ConfParser ConfParseBuilder) throws ConfParseException {
+        this(file, ConfParseBuilder, null);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given file and builder instance.
+     * In incremental mode the headers of the previous config whose section in
+     * the file has not changed are reused instead of being parsed again.
+     *
+     * @param file The file.
+     * @param ConfParseBuilder The builder instance.
+     * @param previous The previous config of the same file, or null.
+     * @throws ConfParseException If something went wrong.
+     */
+    ConfParseConfig(File file, ConfParse.ConfParser ConfParseBuilder, ConfParseConfig previous) throws ConfParseException {
+        frozen = false;
+        upper = null;
+        base = null;
+        int Lines;
+
+        ConfParseParser parser = ConfParseBuilder.newParser(headers);
+        if (ConfParseBuilder.isIncremental()) {
+            sectionHashes = new HashMap<>();
+            changedHeaders = new HashSet<>();
+            parser.hashSections(sectionHashes, changedHeaders);
+
+            if (previous != null && previous.sectionHashes != null) {
+                parser.reuse(previous.headers, previous.sectionHashes);
+            }
+        }
+
+        long start = System.nanoTime();
+        long read = start;
+
+        try {
+            if (ConfParseBuilder.isMemoryMapped() && file.length() <= Integer.MAX_VALUE) {
+                Lines = parseMapped(file, parser); // Parse File Straight From The Mapped Buffer
+            } else if (ConfParseBuilder.isIncremental() || ConfParseBuilder.isParallel() || parser.retainsSource()) {
+                ByteBuffer Data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                read = System.nanoTime();
+                Lines = parser.parse(ConfParseSource.of(Data)); // Parse Whole File To Find Its Sections
+            } else {
+                try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+                    Lines = parser.parse(reader); // Parse File While Reading It
+                }
+            }
+        } catch (IOException e) {
+            throw new ConfParseLoadConfigException("Could not load config file '" + file.getName() + "'");   // Throw File Not Found ConfParseException
+        }
+
+        // Check If Config Is Empty Or Not
+        if (Lines == 0) {
+            throw new ConfParseEmptyConfigException("Config file " + file.getName() + " is empty");     // Throw ConfParseEmptyConfigException
+        }
+
+        long parsed = System.nanoTime();
+        applyDefaults(ConfParseBuilder);
+        report(ConfParseBuilder, file.getPath(), file.length(), Lines, read - start, parsed - read, parsed);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given file.
+     *
+     * @param file The config file.
+     * @throws ConfParseException If something went wrong.
+     */
+    protected ConfParseConfig(File file) throws ConfParseException {
+        this(file, new ConfParse.ConfParser(file));
+    }
+
+    /**
+     * Memory-maps the given config file and parses it as UTF-8 directly from
+     * the mapped buffer.
+     *
+     * @param file The config file.
+     * @param parser The parser to parse the file with.
+     * @return The number of non-empty and non-comment lines parsed.
+     * @throws IOException If the file could not be mapped.
+     * @throws ConfParseException If something went wrong during the parsing.
+     */
+    private int parseMapped(File file, ConfParseParser parser) throws IOException, ConfParseException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parser.parse(ConfParseSource.of(buffer));
+        }
+    }
+
+    /**
+     * Creates a new ConfParse config from the given URL and builder instance.
+     *
+     * @param url The File URL
+     * @param ConfParseBuilder The builder instance.
+     * @throws ConfParseException If something went wrong.
+     */
+    protected ConfParseConfig(URL url, ConfParse.ConfParser ConfParseBuilder) throws ConfParseException {
+        this(url, ConfParseBuilder, ConfParseBuilder.getFetcher().open(false), true);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given response of the URL and
+     * builder instance. The response is not committed.
+     *
+     * @param URL URL of ConfParse config file
+     * @param ConfParseBuilder The builder instance.
+     * @param response The response of the URL.
+     * @throws ConfParseException If something went wrong.
+     */
+    ConfParseConfig(URL URL, ConfParse.ConfParser ConfParseBuilder, ConfParseFetcher.Response response) throws ConfParseException {
+        this(URL, ConfParseBuilder, response, false);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given response of the URL and
+     * builder instance.
+     *
+     * @param URL URL of ConfParse config file
+     * @param ConfParseBuilder The builder instance.
+     * @param response The response of the URL.
+     * @param commit True to commit the response once the config is built.
+     * @throws ConfParseException If something went wrong.
+     */
+    private ConfParseConfig(URL URL, ConfParse.ConfParser ConfParseBuilder, ConfParseFetcher.Response response, boolean commit) throws ConfParseException {
+        frozen = false;
+        upper = null;
+        base = null;
+
+        long start = System.nanoTime();
+        int Lines = response.parse(ConfParseBuilder.newParser(headers));
+
+        // Check If Config Is Empty Or Not
+        if (Lines == 0) {
+            throw new ConfParseEmptyConfigException("Config file data at " + URL.toString() + " is empty");     // Throw ConfParseEmptyConfigException
+        }
+
+        long parsed = System.nanoTime();
+        applyDefaults(ConfParseBuilder);
+        report(ConfParseBuilder, URL.toString(), response.length(), Lines, response.getFetchNanos(), parsed - start, parsed);
+
+        if (commit) {
+            response.commit();
+        }
+    }
+
+    /**
+     * Creates a new ConfParse config from the given file URL.
+     *
+     * @param URL URL of ConfParse config file
+     * @throws ConfParseException If Something went wrong
+     */
+    protected ConfParseConfig(URL URL) throws ConfParseException {
+        this(URL, new ConfParse.ConfParser(URL));
+    }
+
+    /**
+     * Creates a new ConfParse config from the given URL and builder instance.
+     *
+     * @param Data The Config Data
+     * @param ConfParseBuilder The builder instance.
+     * @throws ConfParseException If something went wrong.
+     */
+    protected ConfParseConfig(String Data, ConfParse.ConfParser ConfParseBuilder) throws ConfParseException {
+
+        frozen = false;
+        upper = null;
+        base = null;
+        long start = System.nanoTime();
+        int Lines = ConfParseBuilder.newParser(headers).parse(ConfParseSource.of(Data)); // Start Parsing Data
+
+        // Check If Config Is Empty Or Not
+        if (Lines == 0) {
+            throw new ConfParseEmptyConfigException("Config file data is empty");     // Throw ConfParseEmptyConfigException
+        }
+
+        long parsed = System.nanoTime();
+        applyDefaults(ConfParseBuilder);
+        report(ConfParseBuilder, "data", Data.length(), Lines, 0, parsed - start, parsed);
+    }
+
+    /**
+     * Creates a new ConfParse config from the UTF-8 bytes of the given builder
+     * instance. The bytes are parsed in place.
+     *
+     * @param ConfParseBuilder The builder instance.
+     * @throws ConfParseException If something went wrong.
+     */
+    protected ConfParseConfig(ConfParse.ConfParser ConfParseBuilder) throws ConfParseException {
+        frozen = false;
+        upper = null;
+        base = null;
+        long start = System.nanoTime();
+        ByteBuffer Data = ConfParseBuilder.getBytes();
+        long read = System.nanoTime();
+
+        int Lines = ConfParseBuilder.newParser(headers).parse(ConfParseSource.of(Data)); // Parse Bytes Without Decoding Them
+
+        // Check If Config Is Empty Or Not
+        if (Lines == 0) {
+            throw new ConfParseEmptyConfigException("Config data is empty");     // Throw ConfParseEmptyConfigException
+        }
+
+        long parsed = System.nanoTime();
+        applyDefaults(ConfParseBuilder);
+        report(ConfParseBuilder, "bytes", Data.remaining(), Lines, read - start, parsed - read, parsed);
+    }
+
+    /**
+     * Creates a new ConfParse config from the given Data
+     *
+     * @param Data Data of ConfParse config file
+     * @throws ConfParseException If Something went wrong
+     */
+    protected ConfParseConfig(String Data) throws ConfParseException {
+        this(Data, new ConfParse.ConfParser(Data));
+    }
+
+    /**
+     * Layers the parsed headers over the default headers of the given
+     * builder. The defaults are frozen and shared between all configs of the
+     * builder, and parsed headers are never modified.
+     *
+     * @param ConfParseBuilder The builder instance.
+     */
+    private void applyDefaults(ConfParse.ConfParser ConfParseBuilder) {
+        for (Header defaults : ConfParseBuilder.getDefaults()) {
+            Header header = headers.get(defaults.getName());
+            headers.put(defaults.getName(), header == null ? defaults : merge(header, defaults));
+        }
+    }
+
+    /**
+     * Merges the given header over the given lower header. If one of them
+     * parses its keys on first read, they are merged when a key of the result
+     * is first read.
+     *
+     * @param upper The upper header.
+     * @param lower The lower header.
+     * @return The merged header.
+     */
+    static Header merge(Header upper, Header lower) {
+        if (upper instanceof ConfParseLazyHeader || lower instanceof ConfParseLazyHeader) {
+            return ConfParseLazyHeader.merged(upper, lower);
+        }
+        return mergeNow(upper, lower);
+    }
+
+    /**
+     * Merges the given header over the given lower header. Keys of the upper
+     * header win unless they have no values and the lower key has. Keys are
+     * shared and not copied, and if nothing of the lower header is needed the
+     * upper header itself is returned.
+     *
+     * @param upper The upper header.
+     * @param lower The lower header.
+     * @return The merged header.
+     */
+    static Header mergeNow(Header upper, Header lower) {
+        Header merged = null;
+
+        for (Key lowerKey : lower.getKeys()) {
+            Key key = upper.getKey(lowerKey.getName());
+            if (key == null || (!key.hasValues() && lowerKey.hasValues())) {
+
+                // Copy The Upper Header On The First Key It Lacks
+                if (merged == null) {
+                    merged = new Header(upper.getName());
+                    for (Key upperKey : upper.getKeys()) {
+                        merged.addKey(upperKey);
+                    }
+                }
+                merged.addKey(lowerKey);
+            }
+        }
+
+        return merged == null ? upper : merged;
+    }
+
+    /**
+     * Reports the load of this config to the metrics of the given builder.
+     *
+     * @param ConfParseBuilder The builder instance.
+     * @param source The file or URL of the config.
+     * @param bytes The size of the data, or -1 if it is unknown.
+     * @param Lines The number of lines parsed.
+     * @param readNanos The time spent reading the data.
+     * @param parseNanos The time spent parsing the data.
+     * @param parsed The time the parsing finished at.
+     */
+    private void report(ConfParse.ConfParser ConfParseBuilder, String source, long bytes, int Lines, long readNanos, long parseNanos, long parsed) {
+        ConfParseMetrics metrics = ConfParseBuilder.getMetrics();
+        if (metrics == null) {
+            return;
+        }
+
+        long defaultsNanos = System.nanoTime() - parsed;
+        int keys = 0;
+        for (Header header : headers.values()) {
+            if (!(header instanceof ConfParseLazyHeader) || ((ConfParseLazyHeader) header).isParsed()) {
+                keys += header.getKeyCount();
+            }
+        }
+
+        metrics.loaded(new ConfParseLoadStats(source, bytes, Lines, headers.size(), keys, readNanos, parseNanos, defaultsNanos));
+    }
+
+    /**
+     * Creates a frozen snapshot of the given config.
+     *
+     * @param config The config to freeze.
+     */
+    private ConfParseConfig(ConfParseConfig config) {
+        frozen = true;
+        upper = null;
+        base = null;
+        sectionHashes = config.sectionHashes;
+        changedHeaders = config.changedHeaders;
+
+        for (Header header : config.getHeaders().values()) {
+            this.headers.put(header.getName(), header.freeze());
+        }
+        index = new ConfParseIndex(headers.values());
+    }
+
+    /**
+     * Creates a layered config of the given configs.
+     *
+     * @param upper The upper config.
+     * @param base The base config.
+     */
+    private ConfParseConfig(ConfParseConfig upper, ConfParseConfig base) {
+        frozen = false;
+        this.upper = upper;
+        this.base = base;
+    }
+
+    /**
+     * Returns a config which layers this config over the given base config.
+     * Headers and keys missing from this config, and keys without values, are
+     * looked up in the base config instead. Layers are stacked by layering
+     * the result again, like {@code host.over(region).over(global)}.
+     *
+     * Neither config is copied or modified. Lookups fall through to the base
+     * config lazily, and a header which exists in both layers is merged on
+     * first access by sharing the keys of both. When a layer is reloaded, only
+     * the merged headers are dropped, so the other layer is never copied.
+     * Listeners have to be added to the layers, as a layered config is never
+     * reloaded itself.
+     *
+     * @param base The config to fall through to.
+     * @return The layered config.
+     */
+    public ConfParseConfig over(ConfParseConfig base) {
+        return new ConfParseConfig(this, base);
+    }
+
+    /**
+     * Returns an immutable snapshot of this config. All headers, keys and
+     * values of the snapshot are frozen and held in packed arrays, so it can
+     * be shared between threads without synchronization and its accessors do
+     * not allocate. Headers and keys are looked up through open-addressing
+     * tables instead of hash maps. Changes to this config are not reflected
+     * in the snapshot.
+     *
+     * @return A frozen snapshot of this config, or this config if it is
+     * already frozen.
+     */
+    public ConfParseConfig freeze() {
+        if (isFrozen()) {
+            return this;
+        }
+
+        return new ConfParseConfig(this);
+    }
+
+    /**
+     * Returns whether this config is a frozen snapshot. A config kept up to
+     * date by a watcher or poller is never frozen, even if it was built
+     * frozen, as every reload replaces its headers.
+     *
+     * @return True if this config is frozen.
+     */
+    public boolean isFrozen() {
+        return frozen && !watched;
+    }
+
+    /**
+     * Marks this config as kept up to date by a watcher or poller, so that
+     * {@link #freeze()} returns a detached snapshot of it.
+     */
+    void setWatched() {
+        watched = true;
+    }
+
+    /**
+     * Atomically replaces the headers of this config with the headers of the
+     * given freshly built config.
+     *
+     * @param config The freshly built config.
+     */
+    void publish(ConfParseConfig config) {
+        Map<String, Header> previous = headers;
+        Map<String, Header> current = config.headers;
+
+        sectionHashes = config.sectionHashes;
+        index = config.index;
+        headers = current;
+
+        if (!listeners.isEmpty()) {
+            try {
+                getListenerExecutor().execute(() -> notifyListeners(previous, current));
+            } catch (RejectedExecutionException e) {
+                // Executor Shut Down, Changes Are Dropped
+            }
+        }
+    }
+
+    /**
+     * Adds a listener which is notified about all changes when this config is
+     * reloaded.
+     *
+     * Listeners are notified asynchronously on the listener executor, so a
+     * slow listener never delays a reload. The changes are computed on the
+     * executor as well, by comparing the old and new version of every header
+     * a listener is interested in.
+     *
+     * @param listener The listener.
+     * @see ConfParseWatcher
+     */
+    public void addListener(ConfParseListener listener) {
+        listeners.add(new Subscription(null, null, listener));
+    }
+
+    /**
+     * Adds a listener which is notified when the given header or any of its
+     * keys is added, removed or modified.
+     *
+     * @param header The name of the header.
+     * @param listener The listener.
+     */
+    public void addListener(String header, ConfParseListener listener) {
+        listeners.add(new Subscription(header, null, listener));
+    }
+
+    /**
+     * Adds a listener which is notified when the given key of the given header
+     * is added, removed or its values are modified.
+     *
+     * @param header The name of the header.
+     * @param key The name of the key.
+     * @param listener The listener.
+     */
+    public void addListener(String header, String key, ConfParseListener listener) {
+        listeners.add(new Subscription(header, key, listener));
+    }
+
+    /**
+     * Removes all subscriptions of the given listener.
+     *
+     * @param listener The listener.
+     */
+    public void removeListener(ConfParseListener listener) {
+        listeners.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    /**
+     * Sets the executor listeners are notified on. By default listeners are
+     * notified in order on a single background thread which stops when idle.
+     *
+     * @param executor The executor.
+     */
+    public void setListenerExecutor(Executor executor) {
+        listenerExecutor = executor;
+    }
+
+    /**
+     * Returns the executor listeners are notified on and creates the default
+     * executor if none was set.
+     *
+     * @return The listener executor.
+     */
+    private Executor getListenerExecutor() {
+        Executor executor = listenerExecutor;
+        if (executor == null) {
+            synchronized (listeners) {
+                executor = listenerExecutor;
+                if (executor == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "ConfParse-Listener");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    listenerExecutor = executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Computes the changes between the given headers and notifies the
+     * listeners they concern.
+     *
+     * @param previous The headers before the reload.
+     * @param current The headers after the reload.
+     */
+    private void notifyListeners(Map<String, Header> previous, Map<String, Header> current) {
+        Set<String> names = new HashSet<>();
+        for (Subscription subscription : listeners) {
+            if (subscription.header == null) {
+                names = null;
+                break;
+            }
+            names.add(subscription.header);
+        }
+
+        List<ConfParseChangeEvent> events = ConfParseDiff.diff(previous, current, names);
+        if (events.isEmpty()) {
+            return;
+        }
+
+        for (Subscription subscription : listeners) {
+            List<ConfParseChangeEvent> matching = new ArrayList<>();
+            for (ConfParseChangeEvent event : events) {
+                if (subscription.matches(event)) {
+                    matching.add(event);
+                }
+            }
+
+            if (!matching.isEmpty()) {
+                try {
+                    subscription.listener.changed(Collections.unmodifiableList(matching));
+                } catch (RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the headers which changed compared to the given
+     * previous config. If this config was parsed incrementally, only the
+     * headers whose section changed are returned. Otherwise all headers of
+     * both configs are returned.
+     *
+     * @param previous The previous config.
+     * @return The names of the changed headers.
+     */
+    Set<String> changedHeaders(ConfParseConfig previous) {
+        if (changedHeaders != null) {
+            return Collections.unmodifiableSet(changedHeaders);
+        }
+
+        Set<String> changed = new HashSet<>(previous.headers.keySet());
+        changed.addAll(headers.keySet());
+        return Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * Returns whether the given header exists or not.
+     *
+     * @param header The header to check.
+     * @return True or false whether the given header exists or not.
+     */
+    public boolean hasHeader(String header) {
+        return header(header) != null;
+    }
+
+    /**
+     * Returns whether the given header and key exists or not.
+     *
+     * @param header The header to check.
+     * @param key The key to check.
+     * @return True or false whether the given header and key exists or not.
+     */
+    public boolean hasHeaderAndKey(String header, String key) {
+        return key(header, key) != null;
+    }
+
+    /**
+     * Returns the header if it exists otherwise it returns null.
+     *
+     * @param header The header name.
+     * @return The header object instance.
+     */
+    public Header getHeader(String header) {
+        Header h = header(header);
+        if (h == null) {
+            misses.increment();
+        }
+        return h;
+    }
+
+    /**
+     * Returns the key of the given header if both exist otherwise it returns
+     * null. On a frozen config this is a single lookup.
+     *
+     * @param header The header name.
+     * @param key The key name.
+     * @return The key object instance.
+     */
+    public Key getKey(String header, String key) {
+        Key k = key(header, key);
+        if (k == null) {
+            misses.increment();
+        }
+        return k;
+    }
+
+    /**
+     * Returns the number of calls of {@link #getHeader(String)} and
+     * {@link #getKey(String, String)} which returned null because the header
+     * or key does not exist. Checks with hasHeader and hasHeaderAndKey are not
+     * counted.
+     *
+     * @return The number of missed lookups.
+     */
+    public long getLookupMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Looks up the given header without counting a miss.
+     *
+     * @param header The header name.
+     * @return The header, or null.
+     */
+    private Header header(String header) {
+        if (upper != null) {
+            Layers l = layers();
+            Header h = upper.header(header);
+            Header lower = base.header(header);
+            if (h == null || lower == null) {
+                return h == null ? lower : h;
+            }
+            return l.merge(h, lower);
+        }
+
+        ConfParseIndex i = index;
+        return i != null ? i.header(header) : headers.get(header);
+    }
+
+    /**
+     * Looks up the given key without counting a miss.
+     *
+     * @param header The header name.
+     * @param key The key name.
+     * @return The key, or null.
+     */
+    Key key(String header, String key) {
+        if (upper != null) {
+            Key k = upper.key(header, key);
+            if (k != null && k.hasValues()) {
+                return k;
+            }
+
+            // Fall Through To The Base For Missing Or Empty Keys
+            Key lower = base.key(header, key);
+            return lower == null || (k != null && !lower.hasValues()) ? k : lower;
+        }
+
+        ConfParseIndex i = index;
+        if (i != null) {
+            return i.key(header, key);
+        }
+
+        Header h = headers.get(header);
+        return h == null ? null : h.getKey(key);
+    }
+
+    /**
+     * Returns a handle which resolves the given header and key once and reads
+     * the key through a direct reference afterwards. The handle resolves the
+     * key again when this config is reloaded.
+     *
+     * @param header The header name.
+     * @param key The key name.
+     * @return A handle for the header and key.
+     */
+    public ConfParseHandle getHandle(String header, String key) {
+        return new ConfParseHandle(this, header, key);
+    }
+
+    /**
+     * Returns all headers of this config.
+     *
+     * @return The headers by name.
+     */
+    Map<String, Header> getHeaders() {
+        if (upper == null) {
+            return headers;
+        }
+
+        Layers l = layers();
+        Map<String, Header> all = l.headers;
+        if (all == null) {
+            all = new HashMap<>(base.getHeaders());
+            for (Header header : upper.getHeaders().values()) {
+                Header lower = all.get(header.getName());
+                all.put(header.getName(), lower == null ? header : l.merge(header, lower));
+            }
+            l.headers = all;
+        }
+        return all;
+    }
+
+    /**
+     * Returns the version of the headers of this config. It changes whenever
+     * this config or one of its layers is reloaded.
+     *
+     * @return The version.
+     */
+    Object version() {
+        return upper == null ? headers : layers();
+    }
+
+    /**
+     * Returns the merged headers of the current versions of both layers.
+     *
+     * @return The merged headers.
+     */
+    private Layers layers() {
+        Object upperVersion = upper.version();
+        Object baseVersion = base.version();
+
+        Layers l = layers;
+        if (l == null || l.upperVersion != upperVersion || l.baseVersion != baseVersion) {
+            l = new Layers(upperVersion, baseVersion);
+            layers = l;
+        }
+        return l;
+    }
+
+    /**
+     * The headers of a layered config which exist in both layers, merged for
+     * one version of each layer.
+     */
+    private static final class Layers {
+
+        private final Object upperVersion;
+
+        private final Object baseVersion;
+
+        private final Map<String, Header> merged = new ConcurrentHashMap<>();
+
+        /**
+         * All headers of both layers, or null until they are needed.
+         */
+        private volatile Map<String, Header> headers;
+
+        private Layers(Object upperVersion, Object baseVersion) {
+            this.upperVersion = upperVersion;
+            this.baseVersion = baseVersion;
+        }
+
+        /**
+         * Returns the given headers merged, merging them on first use.
+         *
+         * @param upper The header of the upper layer.
+         * @param lower The header of the base layer.
+         * @return The merged header.
+         */
+        private Header merge(Header upper, Header lower) {
+            return merged.computeIfAbsent(upper.getName(), name -> ConfParseConfig.merge(upper, lower));
+        }
+    }
+
+    /**
+     * A listener together with the header or key it is interested in.
+     */
+    private static final class Subscription {
+
+        private final String header;
+
+        private final String key;
+
+        private final ConfParseListener listener;
+
+        private Subscription(String header, String key, ConfParseListener listener) {
+            this.header = header;
+            this.key = key;
+            this.listener = listener;
+        }
+
+        /**
+         * Returns whether the given event concerns this subscription.
+         *
+         * @param event The event.
+         * @return True if the listener should receive the event.
+         */
+        private boolean matches(ConfParseChangeEvent event) {
+            if (header == null) {
+                return true;
+            }
+            return header.equals(event.getHeaderName()) && (key == null || key.equals(event.getKeyName()));
+        }
+    }
+}
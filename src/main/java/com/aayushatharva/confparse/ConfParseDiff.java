@@ -0,0 +1,136 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+
+/**
+ * Computes the changes between two versions of the headers of a config.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseDiff {
+
+    private ConfParseDiff() {
+    }
+
+    /**
+     * Returns the changes between the given old and new headers. Headers which
+     * are the same object in both versions, like the headers reused by an
+     * incremental reload, and headers parsed on first read from the same text
+     * are skipped without comparing their keys.
+     *
+     * Only the given headers are compared, so headers nobody listens to are
+     * never parsed because of a reload.
+     *
+     * @param oldHeaders The old headers.
+     * @param newHeaders The new headers.
+     * @param names The names of the headers to compare, or null for all.
+     * @return The header and key changes.
+     */
+    static List<ConfParseChangeEvent> diff(Map<String, Header> oldHeaders, Map<String, Header> newHeaders, Set<String> names) {
+        List<ConfParseChangeEvent> events = new ArrayList<>();
+
+        for (Header oldHeader : oldHeaders.values()) {
+            if (names != null && !names.contains(oldHeader.getName())) {
+                continue;
+            }
+            Header newHeader = newHeaders.get(oldHeader.getName());
+
+            if (newHeader == null) {
+                events.add(new ConfParseChangeEvent(ConfParseChangeEvent.Type.REMOVED, oldHeader.getName(), oldHeader, null, null, null, null));
+                for (Key oldKey : oldHeader.getKeys()) {
+                    events.add(new ConfParseChangeEvent(ConfParseChangeEvent.Type.REMOVED, oldHeader.getName(), oldHeader, null, oldKey.getName(), oldKey, null));
+                }
+            } else if (!ConfParseLazyHeader.same(oldHeader, newHeader)) {
+                diff(oldHeader, newHeader, events);
+            }
+        }
+
+        for (Header newHeader : newHeaders.values()) {
+            if ((names == null || names.contains(newHeader.getName())) && !oldHeaders.containsKey(newHeader.getName())) {
+                events.add(new ConfParseChangeEvent(ConfParseChangeEvent.Type.ADDED, newHeader.getName(), null, newHeader, null, null, null));
+                for (Key newKey : newHeader.getKeys()) {
+                    events.add(new ConfParseChangeEvent(ConfParseChangeEvent.Type.ADDED, newHeader.getName(), null, newHeader, newKey.getName(), null, newKey));
+                }
+            }
+        }
+
+        return events;
+    }
+
+    /**
+     * Adds the changes between two versions of the same header.
+     *
+     * @param oldHeader The old header.
+     * @param newHeader The new header.
+     * @param events The list to add the changes to.
+     */
+    private static void diff(Header oldHeader, Header newHeader, List<ConfParseChangeEvent> events) {
+        String name = oldHeader.getName();
+        int headerEvent = events.size();
+
+        for (Key oldKey : oldHeader.getKeys()) {
+            Key newKey = newHeader.getKey(oldKey.getName());
+
+            if (newKey == null) {
+                events.add(new ConfParseChangeEvent(ConfParseChangeEvent.Type.REMOVED, name, oldHeader, newHeader, oldKey.getName(), oldKey, null));
+            } else if (newKey != oldKey && !sameValues(oldKey.getValues(), newKey.getValues())) {
+                events.add(new ConfParseChangeEvent(ConfParseChangeEvent.Type.MODIFIED, name, oldHeader, newHeader, oldKey.getName(), oldKey, newKey));
+            }
+        }
+
+        for (Key newKey : newHeader.getKeys()) {
+            if (!oldHeader.hasKey(newKey.getName())) {
+                events.add(new ConfParseChangeEvent(ConfParseChangeEvent.Type.ADDED, name, oldHeader, newHeader, newKey.getName(), null, newKey));
+            }
+        }
+
+        // Announce The Modified Header Before Its Keys
+        if (events.size() > headerEvent) {
+            events.add(headerEvent, new ConfParseChangeEvent(ConfParseChangeEvent.Type.MODIFIED, name, oldHeader, newHeader, null, null, null));
+        }
+    }
+
+    /**
+     * Returns whether the given values are equal by their text.
+     *
+     * @param oldValues The old values.
+     * @param newValues The new values.
+     * @return True if both lists hold the same values in the same order.
+     */
+    private static boolean sameValues(List<Value> oldValues, List<Value> newValues) {
+        if (oldValues.size() != newValues.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < oldValues.size(); i++) {
+            if (!Objects.equals(oldValues.get(i).asString(), newValues.get(i).asString())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,457 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+
+/**
+ * Fetches config data from a URL.
+ *
+ * The ETag and Last-Modified validators of the last loaded data are kept and
+ * sent with the next request, so a server answering 304 Not Modified spares
+ * the download and the parse. Responses may be gzip compressed. If a cache
+ * file is set, the last successfully parsed data is stored in it together
+ * with its validators and loaded from it whenever the server cannot be
+ * reached in time.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseFetcher {
+
+    /**
+     * The URL of the config data.
+     */
+    private final URL URL;
+
+    /**
+     * The connect timeout in milliseconds, 0 for none.
+     */
+    private final int connectTimeout;
+
+    /**
+     * The read timeout in milliseconds, 0 for none.
+     */
+    private final int readTimeout;
+
+    /**
+     * The User-Agent sent with every request.
+     */
+    private final String userAgent;
+
+    /**
+     * The last-known-good cache file, or null if there is none.
+     */
+    private final File cacheFile;
+
+    /**
+     * The receiver of fetch measurements, or null.
+     */
+    private final ConfParseMetrics metrics;
+
+    /**
+     * The ETag of the last loaded data, or null.
+     */
+    private String etag;
+
+    /**
+     * The Last-Modified date of the last loaded data, or null.
+     */
+    private String lastModified;
+
+    /**
+     * Creates a new fetcher for the given URL.
+     *
+     * @param URL The URL of the config data.
+     * @param connectTimeout The connect timeout in milliseconds, 0 for none.
+     * @param readTimeout The read timeout in milliseconds, 0 for none.
+     * @param userAgent The User-Agent sent with every request.
+     * @param cacheFile The last-known-good cache file, or null.
+     * @param metrics The receiver of fetch measurements, or null.
+     */
+    ConfParseFetcher(URL URL, int connectTimeout, int readTimeout, String userAgent, File cacheFile, ConfParseMetrics metrics) {
+        this.URL = URL;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.userAgent = userAgent;
+        this.cacheFile = cacheFile;
+        this.metrics = metrics;
+
+        // Resume From The Validators Of The Cached Data
+        Properties meta = readMeta();
+        if (meta != null && cacheFile.isFile()) {
+            etag = meta.getProperty("etag");
+            lastModified = meta.getProperty("last-modified");
+        }
+    }
+
+    /**
+     * Requests the config data.
+     *
+     * @param conditional True to return null if the data has not changed since
+     * it was last loaded.
+     * @return The response, or null if the request was conditional and the
+     * data has not changed.
+     * @throws ConfParseException If the data could not be fetched and there is
+     * no cached data. Conditional requests never fall back to cached data.
+     */
+    synchronized Response open(boolean conditional) throws ConfParseException {
+        boolean cached = cacheFile != null && cacheFile.isFile();
+        long start = System.nanoTime();
+        int status = -1;
+
+        try {
+            URLConnection connection = URL.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("User-Agent", userAgent);
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+
+            // Only Ask For Changes If The Unchanged Data Can Be Used
+            if (conditional || cached) {
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+
+            connection.connect();
+
+            if (connection instanceof HttpURLConnection) {
+                status = ((HttpURLConnection) connection).getResponseCode();
+
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    ((HttpURLConnection) connection).disconnect();
+                    return fetched(conditional ? null : fromCache(), status, !conditional, start);
+                }
+
+                if (status >= 400) {
+                    ((HttpURLConnection) connection).disconnect();
+                    throw new IOException("Server answered with status " + status);
+                }
+            }
+
+            InputStream stream = connection.getInputStream();
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                stream = new GZIPInputStream(stream);
+            }
+
+            Charset charset = charset(connection.getContentType());
+            String responseEtag = connection.getHeaderField("ETag");
+            String responseLastModified = connection.getHeaderField("Last-Modified");
+
+            // Read The Whole Body Up Front If It Has To Be Cached
+            if (cacheFile != null) {
+                byte[] body;
+                try (InputStream in = stream) {
+                    body = in.readAllBytes();
+                }
+                return fetched(new Response(null, body, body.length, charset, responseEtag, responseLastModified, false), status, false, start);
+            }
+
+            return fetched(new Response(stream, null, connection.getContentLengthLong(), charset, responseEtag, responseLastModified, false), status, false, start);
+        } catch (IOException e) {
+            if (cached && !conditional) {
+                return fetched(fromCache(), status, true, start);  // Fall Back To The Last Known Good Data
+            }
+            fetched(null, status, false, start);
+            throw new ConfParseLoadConfigException("Could not load config file data from '" + URL.toString() + "'");   // Throw File Not Found ConfParseException
+        }
+    }
+
+    /**
+     * Records the time of a finished request in its response and reports it
+     * to the metrics.
+     *
+     * @param response The response, or null if there is none.
+     * @param status The HTTP status code, or -1.
+     * @param cached True if the cached data is used instead.
+     * @param start The start time of the request.
+     * @return The response.
+     */
+    private Response fetched(Response response, int status, boolean cached, long start) {
+        long nanos = System.nanoTime() - start;
+        if (response != null) {
+            response.fetchNanos = nanos;
+        }
+        if (metrics != null) {
+            metrics.fetched(URL, status, cached, nanos);
+        }
+        return response;
+    }
+
+    /**
+     * Returns a response with the data of the cache file.
+     *
+     * @return The response.
+     * @throws ConfParseException If there is no cached data.
+     */
+    private Response fromCache() throws ConfParseException {
+        Properties meta = readMeta();
+
+        try {
+            byte[] body = Files.readAllBytes(cacheFile.toPath());
+            Charset charset = meta == null ? Charset.defaultCharset() : charset("; charset=" + meta.getProperty("charset"));
+            String cachedEtag = meta == null ? null : meta.getProperty("etag");
+            String cachedLastModified = meta == null ? null : meta.getProperty("last-modified");
+            return new Response(null, body, body.length, charset, cachedEtag, cachedLastModified, true);
+        } catch (IOException e) {
+            throw new ConfParseLoadConfigException("Could not load config file data from '" + URL.toString() + "' or its cache");
+        }
+    }
+
+    /**
+     * Reads the validators of the cached data.
+     *
+     * @return The validators, or null if there are none.
+     */
+    private Properties readMeta() {
+        if (cacheFile == null) {
+            return null;
+        }
+
+        Path metaFile = metaFile();
+        if (!Files.isRegularFile(metaFile)) {
+            return null;
+        }
+
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(metaFile)) {
+            meta.load(in);
+            return meta;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given data and its validators in the cache file. The old
+     * validators are removed first, so they can never describe other data.
+     *
+     * @param response The successfully parsed response.
+     * @throws IOException If the cache could not be written.
+     */
+    private void writeCache(Response response) throws IOException {
+        Path metaFile = metaFile();
+        Files.deleteIfExists(metaFile);
+
+        replace(cacheFile.toPath(), response.body);
+
+        Properties meta = new Properties();
+        meta.setProperty("charset", response.charset.name());
+        if (response.etag != null) {
+            meta.setProperty("etag", response.etag);
+        }
+        if (response.lastModified != null) {
+            meta.setProperty("last-modified", response.lastModified);
+        }
+
+        Path temp = Files.createTempFile(metaFile.toAbsolutePath().getParent(), metaFile.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            meta.store(out, "ConfParse cache of " + URL);
+        }
+        Files.move(temp, metaFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Replaces the given file with the given data through a temporary file.
+     *
+     * @param file The file.
+     * @param data The data.
+     * @throws IOException If the file could not be written.
+     */
+    private static void replace(Path file, byte[] data) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the file the validators of the cached data are stored in.
+     *
+     * @return The validators file.
+     */
+    private Path metaFile() {
+        return new File(cacheFile.getPath() + ".meta").toPath();
+    }
+
+    /**
+     * Returns the charset of the given content type.
+     *
+     * @param contentType The content type.
+     * @return The charset, or the platform charset if none is given.
+     */
+    private static Charset charset(String contentType) {
+        if (contentType != null) {
+            int index = contentType.toLowerCase().indexOf("charset=");
+            if (index >= 0) {
+                String name = contentType.substring(index + 8).split(";")[0].trim().replace("\"", "");
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    // Fall Back To The Platform Charset
+                }
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * The config data of a request. A response which is not parsed has to be
+     * closed to release its connection.
+     */
+    final class Response implements Closeable {
+
+        private final InputStream stream;
+
+        private final byte[] body;
+
+        private final long length;
+
+        private final Charset charset;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final boolean cached;
+
+        /**
+         * The time the request took, in nanoseconds.
+         */
+        private long fetchNanos;
+
+        /**
+         * The number of lines parsed from this response.
+         */
+        private int Lines;
+
+        private Response(InputStream stream, byte[] body, long length, Charset charset, String etag, String lastModified, boolean cached) {
+            this.stream = stream;
+            this.body = body;
+            this.length = length;
+            this.charset = charset;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.cached = cached;
+        }
+
+        /**
+         * Returns the size of the data in bytes.
+         *
+         * @return The size of the data, or -1 if it is unknown.
+         */
+        long length() {
+            return length;
+        }
+
+        /**
+         * Returns the time the request took.
+         *
+         * @return The time in nanoseconds.
+         */
+        long getFetchNanos() {
+            return fetchNanos;
+        }
+
+        /**
+         * Closes the stream of this response without reading it.
+         */
+        @Override
+        public void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // Nothing Was Read, So Nothing Is Lost
+                }
+            }
+        }
+
+        /**
+         * Parses the data of this response. Its validators are not kept until
+         * the config built from it is committed.
+         *
+         * @param parser The parser.
+         * @return The number of non-empty and non-comment lines parsed.
+         * @throws ConfParseException If the data could not be read or parsed.
+         */
+        int parse(ConfParseParser parser) throws ConfParseException {
+            int Lines;
+
+            if (body != null) {
+                Lines = parser.parse(ConfParseSource.of(new String(body, charset)));
+            } else if (parser.retainsSource()) {
+                try (InputStream in = stream) {
+                    Lines = parser.parse(ConfParseSource.of(new String(in.readAllBytes(), charset))); // Keep The Data For Lazy Parsing
+                } catch (IOException e) {
+                    throw new ConfParseLoadConfigException("Could not load config file data from '" + URL.toString() + "'");   // Throw File Not Found ConfParseException
+                }
+            } else {
+                try (Reader reader = new InputStreamReader(stream, charset)) {
+                    Lines = parser.parse(reader); // Parse Data While Downloading It
+                } catch (IOException e) {
+                    throw new ConfParseLoadConfigException("Could not load config file data from '" + URL.toString() + "'");   // Throw File Not Found ConfParseException
+                }
+            }
+
+            this.Lines = Lines;
+            return Lines;
+        }
+
+        /**
+         * Keeps the validators of this response for the next request and
+         * stores its data in the cache file. Called once the config built from
+         * this response has been published, so that a config which failed to
+         * build is downloaded again by the next request.
+         */
+        void commit() {
+            synchronized (ConfParseFetcher.this) {
+                ConfParseFetcher.this.etag = etag;
+                ConfParseFetcher.this.lastModified = lastModified;
+
+                if (cacheFile != null && !cached && Lines > 0) {
+                    try {
+                        writeCache(this);
+                    } catch (IOException e) {
+                        // The Cache Is Best Effort
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+
+/**
+ * A header and key path of a config which is resolved once and then read
+ * through a direct reference to the key.
+ *
+ * The headers of a config are replaced as a whole on reload, so their
+ * identity is used as the version of the config. The handle only resolves the
+ * path again when that version changed, which makes repeated reads a
+ * reference comparison instead of two string lookups.
+ *
+ * @author Aayush Atharva
+ */
+public final class ConfParseHandle {
+
+    private final ConfParseConfig config;
+
+    private final String HeaderName;
+
+    private final String KeyName;
+
+    /**
+     * The key resolved against the current version of the config.
+     */
+    private volatile Resolved resolved;
+
+    /**
+     * Creates a new handle for the given path of the given config.
+     *
+     * @param config The config.
+     * @param HeaderName The header name.
+     * @param KeyName The key name.
+     */
+    ConfParseHandle(ConfParseConfig config, String HeaderName, String KeyName) {
+        this.config = config;
+        this.HeaderName = HeaderName;
+        this.KeyName = KeyName;
+        this.resolved = resolve(config.version());
+    }
+
+    /**
+     * Returns the header name of this handle.
+     *
+     * @return The header name.
+     */
+    public String getHeaderName() {
+        return HeaderName;
+    }
+
+    /**
+     * Returns the key name of this handle.
+     *
+     * @return The key name.
+     */
+    public String getKeyName() {
+        return KeyName;
+    }
+
+    /**
+     * Returns the key of the current version of the config if the header and
+     * key exist otherwise it returns null.
+     *
+     * @return The key object instance.
+     */
+    public Key getKey() {
+        Object version = config.version();
+        Resolved r = resolved;
+
+        // Resolve Again Only If The Config Was Reloaded
+        if (r.version != version) {
+            r = resolve(version);
+            resolved = r;
+        }
+
+        return r.key;
+    }
+
+    /**
+     * Returns whether the header and key exist in the current version of the
+     * config.
+     *
+     * @return True or false whether the header and key exist or not.
+     */
+    public boolean hasKey() {
+        return getKey() != null;
+    }
+
+    /**
+     * Returns the value at the given index of the key, or null if the header
+     * or key does not exist.
+     *
+     * @param index The index of the value.
+     * @return The value object instance.
+     */
+    public Value getValue(int index) {
+        Key key = getKey();
+        return key == null ? null : key.getValue(index);
+    }
+
+    /**
+     * Resolves the path against the config. A reload racing with this may
+     * already be seen, in which case the next read resolves it again.
+     *
+     * @param version The version of the config.
+     * @return The resolved key.
+     */
+    private Resolved resolve(Object version) {
+        return new Resolved(version, config.key(HeaderName, KeyName));
+    }
+
+    /**
+     * A key together with the version of the config it was resolved from.
+     */
+    private static final class Resolved {
+
+        private final Object version;
+
+        private final Key key;
+
+        private Resolved(Object version, Key key) {
+            this.version = version;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,658 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32C;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+
+/**
+ * A precompiled, read-only config held in a compact binary image.
+ *
+ * The image holds a table of all distinct strings, the headers and keys as
+ * index arrays sorted by the hash of their names and the values as indices
+ * into the string table. Lookups search the arrays of the image directly, so
+ * loading an image does not parse or deserialize anything. Headers are only
+ * decoded into frozen {@link Header} objects when they are first asked for.
+ *
+ * Images are versioned and checksummed. An image whose version, checksum or
+ * source file does not match is never used.
+ *
+ * @author Aayush Atharva
+ * @see ConfParse.ConfParser#BuildPrecompiled(File)
+ */
+public final class ConfParseImage {
+
+    /**
+     * The magic number every image starts with.
+     */
+    private static final int MAGIC = 0x43504946; // CPIF
+
+    /**
+     * The version of the image format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size of the fixed part of the image in bytes.
+     */
+    private static final int FIXED_SIZE = 56;
+
+    /**
+     * Orders headers and keys the way they are searched in the image.
+     */
+    private static final Comparator<String> BY_HASH = Comparator.comparingInt(String::hashCode);
+
+    /**
+     * The image.
+     */
+    private final ByteBuffer image;
+
+    /**
+     * The number of headers.
+     */
+    private final int headerCount;
+
+    /**
+     * The offsets of the arrays of the image.
+     */
+    private final int headerHashes, headerNames, headerKeys, keyHashes, keyNames, keyValues, values, stringOffsets, strings;
+
+    /**
+     * The headers decoded so far.
+     */
+    private final AtomicReferenceArray<Header> decoded;
+
+    /**
+     * Creates a new config image over the given validated image.
+     *
+     * @param image The image.
+     */
+    private ConfParseImage(ByteBuffer image) {
+        this.image = image;
+        headerCount = image.getInt(32);
+        int keyCount = image.getInt(36);
+        int valueCount = image.getInt(40);
+        int stringCount = image.getInt(44);
+
+        headerHashes = FIXED_SIZE;
+        headerNames = headerHashes + 4 * headerCount;
+        headerKeys = headerNames + 4 * headerCount;
+        keyHashes = headerKeys + 4 * (headerCount + 1);
+        keyNames = keyHashes + 4 * keyCount;
+        keyValues = keyNames + 4 * keyCount;
+        values = keyValues + 4 * (keyCount + 1);
+        stringOffsets = values + 4 * valueCount;
+        strings = stringOffsets + 4 * (stringCount + 1);
+
+        decoded = new AtomicReferenceArray<>(headerCount);
+    }
+
+    /**
+     * Compiles the given config into an image and writes it to the given
+     * file. Images compiled this way are not tied to a source file, so
+     * {@link ConfParse.ConfParser#BuildPrecompiled(File)} compiles them again.
+     *
+     * @param config The config to compile.
+     * @param file The image file.
+     * @throws ConfParseException If the config is too large for an image, or
+     * if the image could not be written.
+     */
+    public static void compile(ConfParseConfig config, File file) throws ConfParseException {
+        try {
+            write(file, compile(config, 0, 0, 0));
+        } catch (IOException e) {
+            throw new ConfParseLoadConfigException("Could not write config image '" + file.getName() + "'");
+        }
+    }
+
+    /**
+     * Memory-maps the given image file.
+     *
+     * @param file The image file.
+     * @return The config image.
+     * @throws ConfParseException If the image could not be loaded, or if it
+     * is corrupt or of another version.
+     */
+    public static ConfParseImage load(File file) throws ConfParseException {
+        ByteBuffer image;
+        try {
+            image = map(file);
+        } catch (IOException e) {
+            throw new ConfParseLoadConfigException("Could not load config image '" + file.getName() + "'");
+        }
+
+        if (!isValid(image)) {
+            throw new ConfParseInvalidConfigException("Config image '" + file.getName() + "' is corrupt or of another version");
+        }
+
+        return new ConfParseImage(image);
+    }
+
+    /**
+     * Memory-maps the given image file if it is valid and was compiled from
+     * the given version of the source file and defaults.
+     *
+     * @param file The image file.
+     * @param sourceLength The length of the source file.
+     * @param sourceModified The modification time of the source file.
+     * @param defaults The fingerprint of the defaults.
+     * @return The config image, or null if it is missing, malformed or
+     * stale.
+     */
+    static ConfParseImage load(File file, long sourceLength, long sourceModified, long defaults) {
+        ByteBuffer image;
+        try {
+            image = map(file);
+        } catch (IOException e) {
+            return null;
+        }
+
+        // Validate The Image Before Reading Any Of Its Fields
+        if (!isValid(image) || image.getLong(8) != sourceLength || image.getLong(16) != sourceModified || image.getLong(24) != defaults) {
+            return null;
+        }
+
+        return new ConfParseImage(image);
+    }
+
+    /**
+     * Compiles the given config into an image and writes it to the given file
+     * on a best effort basis.
+     *
+     * @param config The config to compile.
+     * @param file The image file, or null to not write the image.
+     * @param sourceLength The length of the source file.
+     * @param sourceModified The modification time of the source file.
+     * @param defaults The fingerprint of the defaults.
+     * @return The config image.
+     * @throws ConfParseException If the config is too large for an image.
+     */
+    static ConfParseImage compile(ConfParseConfig config, File file, long sourceLength, long sourceModified, long defaults) throws ConfParseException {
+        ByteBuffer image = compile(config, sourceLength, sourceModified, defaults);
+        if (file == null) {
+            return new ConfParseImage(image);
+        }
+
+        try {
+            write(file, image);
+        } catch (IOException e) {
+            // The Image Is Only A Cache, The Config Is Still Usable
+        }
+        return new ConfParseImage(image);
+    }
+
+    /**
+     * Returns a fingerprint of the given default headers which does not
+     * depend on the order of the headers and keys.
+     *
+     * @param headers The default headers.
+     * @return The fingerprint.
+     */
+    static long fingerprint(List<Header> headers) {
+        long fingerprint = 0;
+        for (Header header : headers) {
+            for (Key key : header.getKeys()) {
+                long hash = 0xcbf29ce484222325L;
+                hash = hash(hash, header.getName());
+                hash = hash(hash, key.getName());
+                for (Value value : key.getValues()) {
+                    hash = hash(hash, value.asString());
+                }
+                fingerprint += hash * 0x9e3779b97f4a7c15L;
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns whether the given header exists or not.
+     *
+     * @param header The header to check.
+     * @return True or false whether the given header exists or not.
+     */
+    public boolean hasHeader(String header) {
+        return findHeader(header) >= 0;
+    }
+
+    /**
+     * Returns whether the given header and key exists or not.
+     *
+     * @param header The header to check.
+     * @param key The key to check.
+     * @return True or false whether the given header and key exists or not.
+     */
+    public boolean hasHeaderAndKey(String header, String key) {
+        int h = findHeader(header);
+        return h >= 0 && findKey(h, key) >= 0;
+    }
+
+    /**
+     * Returns the header if it exists otherwise it returns null. The header
+     * is decoded from the image on first access and is frozen.
+     *
+     * @param header The header name.
+     * @return The header object instance.
+     */
+    public Header getHeader(String header) {
+        int h = findHeader(header);
+        if (h < 0) {
+            return null;
+        }
+
+        Header decodedHeader = decoded.get(h);
+        if (decodedHeader == null) {
+            decoded.compareAndSet(h, null, decodeHeader(h));
+            decodedHeader = decoded.get(h);
+        }
+        return decodedHeader;
+    }
+
+    /**
+     * Returns the key of the given header if it exists otherwise it returns
+     * null.
+     *
+     * @param header The header name.
+     * @param key The key name.
+     * @return The key object instance.
+     */
+    public Key getKey(String header, String key) {
+        Header h = getHeader(header);
+        return h == null ? null : h.getKey(key);
+    }
+
+    /**
+     * Returns the value at the given index of the given key, read straight
+     * from the image.
+     *
+     * @param header The header name.
+     * @param key The key name.
+     * @param index The index of the value.
+     * @return The value, or null if the header or key does not exist.
+     * @throws IndexOutOfBoundsException If the key has no value at the index.
+     */
+    public String getValue(String header, String key, int index) {
+        int h = findHeader(header);
+        int k = h < 0 ? -1 : findKey(h, key);
+        if (k < 0) {
+            return null;
+        }
+
+        int first = image.getInt(keyValues + 4 * k);
+        int count = image.getInt(keyValues + 4 * (k + 1)) - first;
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Key " + key + " has no value at index " + index);
+        }
+        return string(image.getInt(values + 4 * (first + index)));
+    }
+
+    /**
+     * Returns the number of headers in the image.
+     *
+     * @return The number of headers.
+     */
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    /**
+     * Returns the index of the given header in the image.
+     *
+     * @param name The header name.
+     * @return The index, or -1 if the header does not exist.
+     */
+    private int findHeader(String name) {
+        return find(headerHashes, headerNames, 0, headerCount, name);
+    }
+
+    /**
+     * Returns the index of the given key of the given header in the image.
+     *
+     * @param header The index of the header.
+     * @param name The key name.
+     * @return The index, or -1 if the key does not exist.
+     */
+    private int findKey(int header, String name) {
+        int from = image.getInt(headerKeys + 4 * header);
+        int to = image.getInt(headerKeys + 4 * (header + 1));
+        return find(keyHashes, keyNames, from, to, name);
+    }
+
+    /**
+     * Searches the given range of a hash array for the given name.
+     *
+     * @param hashes The offset of the hash array.
+     * @param names The offset of the name array.
+     * @param from The first index to search, inclusive.
+     * @param to The last index to search, exclusive.
+     * @param name The name.
+     * @return The index of the name, or -1 if it does not exist.
+     */
+    private int find(int hashes, int names, int from, int to, String name) {
+        int hash = name.hashCode();
+        int low = from;
+        int high = to;
+
+        // Find The First Entry With The Hash
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (image.getInt(hashes + 4 * mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        for (int i = low; i < to && image.getInt(hashes + 4 * i) == hash; i++) {
+            if (matches(image.getInt(names + 4 * i), name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the given string of the string table equals the given
+     * name without decoding it, unless it is not ASCII.
+     *
+     * @param index The index of the string.
+     * @param name The name.
+     * @return True if the string equals the name.
+     */
+    private boolean matches(int index, String name) {
+        int start = strings + image.getInt(stringOffsets + 4 * index);
+        int end = strings + image.getInt(stringOffsets + 4 * (index + 1));
+        if (end - start < name.length()) {
+            return false;
+        }
+
+        int j = 0;
+        for (int i = start; i < end; i++, j++) {
+            byte b = image.get(i);
+            if (b < 0) {
+                return string(index).equals(name);
+            }
+            if (j >= name.length() || name.charAt(j) != b) {
+                return false;
+            }
+        }
+        return j == name.length();
+    }
+
+    /**
+     * Decodes the given string of the string table.
+     *
+     * @param index The index of the string.
+     * @return The string.
+     */
+    private String string(int index) {
+        int start = strings + image.getInt(stringOffsets + 4 * index);
+        int end = strings + image.getInt(stringOffsets + 4 * (index + 1));
+
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = image.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the given header with all its keys and values.
+     *
+     * @param h The index of the header.
+     * @return The frozen header.
+     */
+    private Header decodeHeader(int h) {
+        Header header = new Header(string(image.getInt(headerNames + 4 * h)));
+
+        int lastKey = image.getInt(headerKeys + 4 * (h + 1));
+        for (int k = image.getInt(headerKeys + 4 * h); k < lastKey; k++) {
+            Key key = new Key(string(image.getInt(keyNames + 4 * k)));
+
+            int lastValue = image.getInt(keyValues + 4 * (k + 1));
+            for (int v = image.getInt(keyValues + 4 * k); v < lastValue; v++) {
+                key.addValue(new Value(string(image.getInt(values + 4 * v))));
+            }
+            header.addKey(key);
+        }
+
+        return header.freeze();
+    }
+
+    /**
+     * Compiles the given config into an image.
+     *
+     * @param config The config to compile.
+     * @param sourceLength The length of the source file.
+     * @param sourceModified The modification time of the source file.
+     * @param defaults The fingerprint of the defaults.
+     * @return The image.
+     * @throws ConfParseException If the config is too large for an image.
+     */
+    private static ByteBuffer compile(ConfParseConfig config, long sourceLength, long sourceModified, long defaults) throws ConfParseException {
+        List<Header> headers = new ArrayList<>(config.getHeaders().values());
+        headers.sort(Comparator.comparing(Header::getName, BY_HASH));
+
+        // Collect The Keys In Image Order And The Distinct Strings
+        List<Key> keys = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        List<byte[]> table = new ArrayList<>();
+        long dataLength = 0;
+        long valueCount = 0;
+
+        for (Header header : headers) {
+            dataLength += intern(header.getName(), ids, table);
+            List<Key> headerKeys = new ArrayList<>(header.getKeys());
+            headerKeys.sort(Comparator.comparing(Key::getName, BY_HASH));
+            for (Key key : headerKeys) {
+                dataLength += intern(key.getName(), ids, table);
+                for (Value value : key.getValues()) {
+                    dataLength += intern(value.asString(), ids, table);
+                    valueCount++;
+                }
+                keys.add(key);
+            }
+        }
+
+        long size = FIXED_SIZE + 4 * (3L * headers.size() + 1 + 3L * keys.size() + 1 + valueCount + table.size() + 1) + dataLength;
+        if (size > Integer.MAX_VALUE) {
+            throw new ConfParseInvalidConfigException("Config is too large for an image");
+        }
+
+        ByteBuffer image = ByteBuffer.allocate((int) size);
+        image.putInt(MAGIC).putInt(VERSION).putLong(sourceLength).putLong(sourceModified).putLong(defaults);
+        image.putInt(headers.size()).putInt(keys.size()).putInt((int) valueCount).putInt(table.size());
+        image.putInt((int) dataLength).putInt(0); // Checksum Is Filled In Last
+
+        for (Header header : headers) {
+            image.putInt(header.getName().hashCode());
+        }
+        for (Header header : headers) {
+            image.putInt(ids.get(header.getName()));
+        }
+        int firstKey = 0;
+        for (Header header : headers) {
+            image.putInt(firstKey);
+            firstKey += header.getKeys().size();
+        }
+        image.putInt(firstKey);
+
+        for (Key key : keys) {
+            image.putInt(key.getName().hashCode());
+        }
+        for (Key key : keys) {
+            image.putInt(ids.get(key.getName()));
+        }
+        int firstValue = 0;
+        for (Key key : keys) {
+            image.putInt(firstValue);
+            firstValue += key.getValues().size();
+        }
+        image.putInt(firstValue);
+
+        for (Key key : keys) {
+            for (Value value : key.getValues()) {
+                image.putInt(ids.get(value.asString()));
+            }
+        }
+
+        int offset = 0;
+        for (byte[] string : table) {
+            image.putInt(offset);
+            offset += string.length;
+        }
+        image.putInt(offset);
+        for (byte[] string : table) {
+            image.put(string);
+        }
+
+        image.putInt(52, checksum(image));
+        image.rewind();
+        return image;
+    }
+
+    /**
+     * Adds the given string to the string table if it is not in it yet.
+     *
+     * @param string The string.
+     * @param ids The indices of the strings in the table.
+     * @param table The string table.
+     * @return The number of bytes added to the string data.
+     */
+    private static int intern(String string, Map<String, Integer> ids, List<byte[]> table) {
+        if (ids.containsKey(string)) {
+            return 0;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        ids.put(string, table.size());
+        table.add(bytes);
+        return bytes.length;
+    }
+
+    /**
+     * Returns whether the given image is of this version, has the expected
+     * size and its checksum matches.
+     *
+     * @param image The image.
+     * @return True if the image can be used.
+     */
+    private static boolean isValid(ByteBuffer image) {
+        if (image.capacity() < FIXED_SIZE || image.getInt(0) != MAGIC || image.getInt(4) != VERSION) {
+            return false;
+        }
+
+        long headerCount = image.getInt(32);
+        long keyCount = image.getInt(36);
+        long valueCount = image.getInt(40);
+        long stringCount = image.getInt(44);
+        long dataLength = image.getInt(48);
+        if (headerCount < 0 || keyCount < 0 || valueCount < 0 || stringCount < 0 || dataLength < 0) {
+            return false;
+        }
+
+        long size = FIXED_SIZE + 4 * (3 * headerCount + 1 + 3 * keyCount + 1 + valueCount + stringCount + 1) + dataLength;
+        return size == image.capacity() && image.getInt(52) == checksum(image);
+    }
+
+    /**
+     * Returns the CRC32C checksum of everything after the fixed part of the
+     * given image.
+     *
+     * @param image The image.
+     * @return The checksum.
+     */
+    private static int checksum(ByteBuffer image) {
+        ByteBuffer body = image.duplicate();
+        body.clear().position(FIXED_SIZE);
+
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Memory-maps the given image file.
+     *
+     * @param file The image file.
+     * @return The mapped image.
+     * @throws IOException If the file could not be mapped.
+     */
+    private static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Config image is too large");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Replaces the given file with the given image through a temporary file.
+     *
+     * @param file The image file.
+     * @param image The image.
+     * @throws IOException If the file could not be written.
+     */
+    private static void write(File file, ByteBuffer image) throws IOException {
+        Path path = file.toPath();
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer data = image.duplicate();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Continues the given FNV-1a hash with the given string.
+     *
+     * @param hash The hash so far.
+     * @param string The string.
+     * @return The new hash.
+     */
+    private static long hash(long hash, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            hash ^= string.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= 0xff; // Separate Consecutive Strings
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+}
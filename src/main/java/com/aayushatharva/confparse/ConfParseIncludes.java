@@ -0,0 +1,437 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+
+/**
+ * Loads the config fragments named by {@code @include} directives.
+ *
+ * Paths are resolved relative to the file or URL of the config which
+ * contains the directive. Configs from URLs can only include configs of the
+ * same scheme, so a downloaded config cannot pull in local files. Every
+ * fragment is loaded on the executor as soon as its directive is parsed, so
+ * independent fragments are loaded at the same time. A fragment is completed
+ * once the fragments it includes are, so no thread of the executor waits for
+ * another fragment.
+ *
+ * Parsed fragments are kept in the {@link Cache} of the builder and reused
+ * by its next build as long as the file and all fragments it includes keep
+ * their length and modification time. Fragments from URLs are checked with
+ * conditional requests instead. Each build only keeps the fragments it
+ * included, so the cache never holds more than one build's fragments.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseIncludes {
+
+    /**
+     * The cache the fragments of this build are kept in for the next build.
+     */
+    private final Cache cache;
+
+    /**
+     * The fragments of the last build by their canonical path or URL.
+     */
+    private final Map<String, Fragment> cached;
+
+    /**
+     * The file the paths are resolved against, or null.
+     */
+    private final File baseFile;
+
+    /**
+     * The URL the paths are resolved against, or null.
+     */
+    private final URL baseURL;
+
+    /**
+     * The canonical paths or URLs of the configs including this one, from the
+     * outermost config on.
+     */
+    private final List<String> chain;
+
+    /**
+     * The connect timeout for URLs in milliseconds.
+     */
+    private final int connectTimeout;
+
+    /**
+     * The read timeout for URLs in milliseconds.
+     */
+    private final int readTimeout;
+
+    /**
+     * The User-Agent sent to URLs.
+     */
+    private final String userAgent;
+
+    /**
+     * The executor fragments are loaded on.
+     */
+    private final Executor executor;
+
+    /**
+     * The fragments included so far.
+     */
+    private final Collection<Fragment> included = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a new loader for the includes of the given config. If neither a
+     * file nor a URL is given, paths are resolved against the working
+     * directory.
+     *
+     * @param file The file of the config, or null.
+     * @param url The URL of the config, or null.
+     * @param connectTimeout The connect timeout for URLs in milliseconds.
+     * @param readTimeout The read timeout for URLs in milliseconds.
+     * @param userAgent The User-Agent sent to URLs.
+     * @param executor The executor fragments are loaded on.
+     * @param cache The cache of the builder.
+     */
+    ConfParseIncludes(File file, URL url, int connectTimeout, int readTimeout, String userAgent, Executor executor, Cache cache) {
+        this(file, url, new ArrayList<>(), connectTimeout, readTimeout, userAgent, executor, cache, cache.fragments);
+        if (file != null) {
+            chain.add(canonical(file).getPath());
+        } else if (url != null) {
+            chain.add(url.toExternalForm());
+        }
+    }
+
+    private ConfParseIncludes(File file, URL url, List<String> chain, int connectTimeout, int readTimeout, String userAgent, Executor executor,
+                              Cache cache, Map<String, Fragment> cached) {
+        this.baseFile = file;
+        this.baseURL = url;
+        this.chain = chain;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.userAgent = userAgent;
+        this.executor = executor;
+        this.cache = cache;
+        this.cached = cached;
+    }
+
+    /**
+     * Starts loading the fragment at the given path.
+     *
+     * @param path The path of the fragment, relative to the including config.
+     * @return The fragment being loaded.
+     * @throws ConfParseException If the path is invalid, has another scheme
+     * than the including URL or includes one of the configs including it, or
+     * if the executor does not take the fragment.
+     */
+    CompletableFuture<Fragment> load(String path) throws ConfParseException {
+        File file = null;
+        URL url = null;
+        String id;
+
+        if (baseURL != null) {
+            try {
+                url = new URL(baseURL, path);
+            } catch (MalformedURLException e) {
+                throw new ConfParseInvalidConfigException("Invalid include '" + path + "'");
+            }
+
+            // Keep Remote Configs From Reading Local Files
+            if (!url.getProtocol().equals(baseURL.getProtocol())) {
+                throw new ConfParseInvalidConfigException("Include '" + path + "' does not use the scheme of '" + baseURL + "'");
+            }
+            id = url.toExternalForm();
+        } else {
+            file = new File(path);
+            if (!file.isAbsolute() && baseFile != null) {
+                file = new File(baseFile.getAbsoluteFile().getParentFile(), path);
+            }
+            file = canonical(file);
+            id = file.getPath();
+        }
+
+        // Detect Configs Including Themselves
+        if (chain.contains(id)) {
+            throw new ConfParseInvalidConfigException("Include cycle: " + String.join(" -> ", chain) + " -> " + id);
+        }
+
+        List<String> childChain = new ArrayList<>(chain);
+        childChain.add(id);
+        ConfParseIncludes child = new ConfParseIncludes(file, url, childChain, connectTimeout, readTimeout, userAgent, executor, cache, cached);
+
+        File fragmentFile = file;
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return fragmentFile != null ? child.loadFile(id) : child.loadURL(id);
+                } catch (ConfParseException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor).thenCompose(Function.identity());
+        } catch (RejectedExecutionException e) {
+            ConfParseException error = new ConfParseLoadConfigException("Could not load include '" + path + "'");
+            error.initCause(e);
+            throw error;
+        }
+    }
+
+    /**
+     * Waits for the given fragment and remembers it as included.
+     *
+     * @param future The fragment being loaded.
+     * @return The fragment.
+     * @throws ConfParseException If the fragment could not be loaded or
+     * parsed. Unexpected errors are thrown as the cause of a
+     * {@link ConfParseLoadConfigException}.
+     */
+    Fragment join(CompletableFuture<Fragment> future) throws ConfParseException {
+        Fragment fragment;
+        try {
+            fragment = future.join();
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof ConfParseException) {
+                throw (ConfParseException) cause;
+            }
+
+            ConfParseException error = new ConfParseLoadConfigException("Could not load a config included by '" + (chain.isEmpty() ? "data" : chain.get(chain.size() - 1)) + "'");
+            error.initCause(cause);
+            throw error;
+        }
+
+        included.add(fragment);
+        return fragment;
+    }
+
+    /**
+     * Keeps the fragments included so far, and the fragments they include,
+     * for the next build in place of the fragments of the last build.
+     */
+    void finished() {
+        Map<String, Fragment> fragments = new HashMap<>();
+        List<Fragment> queue = new ArrayList<>(included);
+        while (!queue.isEmpty()) {
+            Fragment fragment = queue.remove(queue.size() - 1);
+            if (fragments.put(fragment.id, fragment) == null) {
+                queue.addAll(fragment.included);
+            }
+        }
+        cache.fragments = fragments;
+    }
+
+    /**
+     * Returns the cached fragment of the base file of this loader if it is
+     * still up to date, otherwise parses the file.
+     *
+     * @param id The canonical path of the file.
+     * @return The fragment, completed once the fragments it includes are
+     * loaded.
+     * @throws ConfParseException If the file could not be loaded or parsed.
+     */
+    private CompletableFuture<Fragment> loadFile(String id) throws ConfParseException {
+        Fragment cached = this.cached.get(id);
+        if (cached != null && cached.isFresh()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        long length = baseFile.length();
+        long modified = baseFile.lastModified();
+
+        ByteBuffer Data;
+        try {
+            Data = ByteBuffer.wrap(Files.readAllBytes(baseFile.toPath()));
+        } catch (IOException e) {
+            throw new ConfParseLoadConfigException("Could not load included config file '" + baseFile.getName() + "'");
+        }
+
+        Map<String, Header> headers = new HashMap<>();
+        ConfParseParser parser = new ConfParseParser(headers).includes(this).deferIncludes();
+        parser.parse(ConfParseSource.of(Data));
+
+        return parser.included().thenApply(ignored -> {
+            return new Fragment(id, headers, baseFile, length, modified, null, new ArrayList<>(included));
+        });
+    }
+
+    /**
+     * Returns the cached fragment of the base URL of this loader if it has
+     * not changed, otherwise downloads and parses it.
+     *
+     * @param id The URL.
+     * @return The fragment, completed once the fragments it includes are
+     * loaded.
+     * @throws ConfParseException If the URL could not be loaded or parsed.
+     */
+    private CompletableFuture<Fragment> loadURL(String id) throws ConfParseException {
+        Fragment cached = this.cached.get(id);
+        ConfParseFetcher fetcher = cached != null ? cached.fetcher : new ConfParseFetcher(baseURL, connectTimeout, readTimeout, userAgent, null, null);
+
+        ConfParseFetcher.Response response = fetcher.open(cached != null);
+        if (response == null) {
+            if (cached.isIncludedFresh()) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            response = fetcher.open(false);
+        }
+
+        Map<String, Header> headers = new HashMap<>();
+        ConfParseParser parser = new ConfParseParser(headers).includes(this).deferIncludes();
+        response.parse(parser);
+
+        ConfParseFetcher.Response parsed = response;
+        return parser.included().thenApply(ignored -> {
+            parsed.commit();
+            return new Fragment(id, headers, null, 0, 0, fetcher, new ArrayList<>(included));
+        });
+    }
+
+    /**
+     * Returns the canonical form of the given file, or its absolute form if
+     * it cannot be resolved.
+     *
+     * @param file The file.
+     * @return The canonical file.
+     */
+    private static File canonical(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    /**
+     * The fragments included by the last build of a builder.
+     */
+    static final class Cache {
+
+        /**
+         * The fragments by their canonical path or URL. Replaced as a whole
+         * by every build which resolves its includes.
+         */
+        private volatile Map<String, Fragment> fragments = Collections.emptyMap();
+    }
+
+    /**
+     * A parsed fragment together with what it was parsed from.
+     */
+    static final class Fragment {
+
+        /**
+         * The canonical path or URL of the fragment.
+         */
+        private final String id;
+
+        /**
+         * The frozen headers of the fragment. They are shared by all configs
+         * including the fragment.
+         */
+        private final Map<String, Header> headers;
+
+        private final File file;
+
+        private final long length;
+
+        private final long modified;
+
+        private final ConfParseFetcher fetcher;
+
+        private final List<Fragment> included;
+
+        private Fragment(String id, Map<String, Header> headers, File file, long length, long modified, ConfParseFetcher fetcher, List<Fragment> included) {
+            this.id = id;
+            this.headers = new HashMap<>(headers.size() * 4 / 3 + 1);
+            for (Header header : headers.values()) {
+                this.headers.put(header.getName(), header.freeze());
+            }
+            this.file = file;
+            this.length = length;
+            this.modified = modified;
+            this.fetcher = fetcher;
+            this.included = included;
+        }
+
+        /**
+         * Returns the headers of this fragment. They are frozen, so they can be
+         * shared by all configs including the fragment.
+         *
+         * @return The frozen headers.
+         */
+        Collection<Header> getHeaders() {
+            return headers.values();
+        }
+
+        /**
+         * Returns whether the source of this fragment and all fragments it
+         * includes are unchanged.
+         *
+         * @return True if this fragment is up to date.
+         */
+        private boolean isFresh() {
+            if (file != null) {
+                if (file.length() != length || file.lastModified() != modified) {
+                    return false;
+                }
+            } else {
+                // Only The Status Is Needed, The Fragment Is Loaded Again Anyway
+                try (ConfParseFetcher.Response response = fetcher.open(true)) {
+                    if (response != null) {
+                        return false;
+                    }
+                } catch (ConfParseException e) {
+                    return false;
+                }
+            }
+            return isIncludedFresh();
+        }
+
+        /**
+         * Returns whether all fragments included by this fragment are
+         * unchanged.
+         *
+         * @return True if the included fragments are up to date.
+         */
+        private boolean isIncludedFresh() {
+            for (Fragment fragment : included) {
+                if (!fragment.isFresh()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
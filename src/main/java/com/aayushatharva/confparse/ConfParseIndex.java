@@ -0,0 +1,112 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.Collection;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.NameIndex;
+
+/**
+ * A lookup index over the headers and keys of a frozen config.
+ *
+ * Headers and keys are kept in {@link NameIndex} tables. Every key is indexed
+ * by its header and key name together, which makes a header and key lookup a
+ * single probe. Keys of headers which are parsed on first read are left out
+ * of the key table and looked up through their header.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseIndex {
+
+    /**
+     * The headers by their names.
+     */
+    private final NameIndex<Header> headers;
+
+    /**
+     * The keys by their header and key names.
+     */
+    private final NameIndex<Key> keys;
+
+    /**
+     * Whether some headers are parsed on first read and their keys are not
+     * in the key table.
+     */
+    private final boolean lazyHeaders;
+
+    /**
+     * Creates a new index over the given frozen headers.
+     *
+     * @param frozenHeaders The headers.
+     */
+    ConfParseIndex(Collection<Header> frozenHeaders) {
+        int keyCount = 0;
+        boolean lazy = false;
+        for (Header header : frozenHeaders) {
+            if (header instanceof ConfParseLazyHeader) {
+                lazy = true;
+            } else {
+                keyCount += header.getKeys().size();
+            }
+        }
+        lazyHeaders = lazy;
+
+        headers = new NameIndex<>(frozenHeaders.size(), 1);
+        keys = new NameIndex<>(keyCount, 2);
+
+        for (Header header : frozenHeaders) {
+            headers.put(header.getName(), header);
+
+            // Do Not Parse Lazy Headers For The Index
+            if (header instanceof ConfParseLazyHeader) {
+                continue;
+            }
+
+            for (Key key : header.getKeys()) {
+                keys.put(header.getName(), key.getName(), key);
+            }
+        }
+    }
+
+    /**
+     * Returns the header with the given name.
+     *
+     * @param name The header name.
+     * @return The header, or null if it does not exist.
+     */
+    Header header(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * Returns the given key of the given header with a single probe.
+     *
+     * @param header The header name.
+     * @param key The key name.
+     * @return The key, or null if the header or key does not exist.
+     */
+    Key key(String header, String key) {
+        Key found = keys.get(header, key);
+        if (found != null || !lazyHeaders) {
+            return found;
+        }
+
+        Header lazy = header(header);
+        return lazy instanceof ConfParseLazyHeader ? lazy.getKey(key) : null;
+    }
+}
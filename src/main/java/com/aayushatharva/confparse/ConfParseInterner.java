@@ -0,0 +1,250 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import com.aayushatharva.confparse.config.Value;
+
+/**
+ * A table of the distinct header names, key names and values seen while
+ * parsing. Repeated names and values are replaced with the instance seen
+ * first, so a token which occurs thousands of times in a config is only kept
+ * in memory once.
+ *
+ * Values are shared as a whole, including their cached conversions. An
+ * interner can be shared between builds and threads. It holds a fixed number
+ * of names and values: every token has one slot, and a token whose slot is
+ * taken by another token replaces it. So the interner never grows, even in a
+ * long running process which reloads configs with ever new values, while
+ * tokens which repeat often stay in it.
+ *
+ * @author Aayush Atharva
+ * @see ConfParse.ConfParser#intern(ConfParseInterner)
+ */
+public final class ConfParseInterner {
+
+    /**
+     * The interner shared by the whole JVM.
+     */
+    private static final ConfParseInterner GLOBAL = new ConfParseInterner();
+
+    /**
+     * The number of names and values an interner holds by default.
+     */
+    private static final int DEFAULT_CAPACITY = 16384;
+
+    /**
+     * The estimated size of a value object in bytes.
+     */
+    private static final int VALUE_SIZE = 48;
+
+    /**
+     * The estimated size of a string object without its characters in bytes.
+     */
+    private static final int STRING_SIZE = 24;
+
+    /**
+     * The estimated size of an array object without its elements in bytes.
+     */
+    private static final int ARRAY_SIZE = 16;
+
+    /**
+     * The header and key names, each in the slot of its hash.
+     */
+    private final AtomicReferenceArray<String> names;
+
+    /**
+     * The values, each in the slot of the hash of its text.
+     */
+    private final AtomicReferenceArray<Value> values;
+
+    /**
+     * The number of slots which hold a name or value.
+     */
+    private final AtomicInteger occupied = new AtomicInteger();
+
+    /**
+     * The number of names and values which were replaced.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The estimated number of bytes saved by replacing names and values.
+     */
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Creates a new interner which holds up to 16384 names and as many
+     * values.
+     */
+    public ConfParseInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new interner which holds up to the given number of names and
+     * as many values. The number is rounded up to a power of two.
+     *
+     * @param capacity The number of names and of values to hold.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public ConfParseInterner(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+
+        int slots = Integer.highestOneBit(capacity * 2 - 1);
+        names = new AtomicReferenceArray<>(slots);
+        values = new AtomicReferenceArray<>(slots);
+    }
+
+    /**
+     * Returns the interner shared by the whole JVM.
+     *
+     * @return The global interner.
+     */
+    public static ConfParseInterner global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the shared instance of the given header or key name.
+     *
+     * @param name The name.
+     * @return The shared name.
+     */
+    String name(String name) {
+        int slot = slot(name.hashCode(), names.length());
+        String shared = names.get(slot);
+        if (name.equals(shared)) {
+            hits.increment();
+            bytesSaved.add(sizeOf(name));
+            return shared;
+        }
+
+        if (names.compareAndSet(slot, shared, name) && shared == null) {
+            occupied.incrementAndGet();
+        }
+        return name;
+    }
+
+    /**
+     * Returns the shared value with the given text.
+     *
+     * @param text The text of the value.
+     * @return The shared value.
+     */
+    Value value(String text) {
+        int slot = slot(text.hashCode(), values.length());
+        Value shared = values.get(slot);
+        if (shared != null && text.equals(shared.asString())) {
+            hits.increment();
+            bytesSaved.add(VALUE_SIZE + sizeOf(text));
+            return shared;
+        }
+
+        Value value = new Value(text);
+        if (values.compareAndSet(slot, shared, value) && shared == null) {
+            occupied.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of names and values which were replaced with a
+     * shared instance.
+     *
+     * @return The number of replaced names and values.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the estimated number of bytes of heap the replaced names and
+     * values would have taken. The estimate assumes compressed references and
+     * compact strings.
+     *
+     * @return The estimated number of bytes saved.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * Returns the number of names and values held by this interner.
+     *
+     * @return The number of names and values.
+     */
+    public int size() {
+        return occupied.get();
+    }
+
+    /**
+     * Removes all names and values from this interner and resets its
+     * counters. Configs parsed before keep their shared instances.
+     */
+    public void clear() {
+        for (int i = 0; i < names.length(); i++) {
+            names.set(i, null);
+            values.set(i, null);
+        }
+        occupied.set(0);
+        hits.reset();
+        bytesSaved.reset();
+    }
+
+    /**
+     * Returns the slot of the given hash in a table of the given size.
+     *
+     * @param hash The hash.
+     * @param length The number of slots, a power of two.
+     * @return The slot.
+     */
+    private static int slot(int hash, int length) {
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    /**
+     * Returns the estimated size of the given string in bytes.
+     *
+     * @param string The string.
+     * @return The estimated size.
+     */
+    private static long sizeOf(String string) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING_SIZE + align(ARRAY_SIZE + (long) string.length() * bytesPerChar);
+    }
+
+    /**
+     * Rounds the given size up to the object alignment.
+     *
+     * @param size The size.
+     * @return The aligned size.
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
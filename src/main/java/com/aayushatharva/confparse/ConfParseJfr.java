@@ -0,0 +1,158 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.net.URL;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+
+/**
+ * Records loads, fetches and reloads of configs as Java Flight Recorder
+ * events, so they can be correlated with the rest of a recording. The events
+ * are in the "ConfParse" category and are only recorded while they are
+ * enabled in a recording.
+ *
+ * @author Aayush Atharva
+ */
+public final class ConfParseJfr implements ConfParseMetrics {
+
+    @Override
+    public void loaded(ConfParseLoadStats stats) {
+        LoadEvent event = new LoadEvent();
+        if (event.shouldCommit()) {
+            event.source = stats.getSource();
+            event.bytes = stats.getBytes();
+            event.lines = stats.getLines();
+            event.headers = stats.getHeaders();
+            event.keys = stats.getKeys();
+            event.readTime = stats.getReadNanos();
+            event.parseTime = stats.getParseNanos();
+            event.defaultsTime = stats.getDefaultsNanos();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void fetched(URL url, int status, boolean cached, long nanos) {
+        FetchEvent event = new FetchEvent();
+        if (event.shouldCommit()) {
+            event.url = url.toString();
+            event.status = status;
+            event.cached = cached;
+            event.fetchTime = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void reloaded(String source, int changedHeaders, ConfParseException error, long nanos) {
+        ReloadEvent event = new ReloadEvent();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.changedHeaders = changedHeaders;
+            event.error = error == null ? null : error.getMessage();
+            event.reloadTime = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * A config was loaded.
+     */
+    @Name("com.aayushatharva.confparse.Load")
+    @Label("Config Load")
+    @Category("ConfParse")
+    static final class LoadEvent extends Event {
+
+        @Label("Source")
+        String source;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Lines")
+        int lines;
+
+        @Label("Headers")
+        int headers;
+
+        @Label("Keys")
+        int keys;
+
+        @Label("Read Time")
+        @Timespan
+        long readTime;
+
+        @Label("Parse Time")
+        @Timespan
+        long parseTime;
+
+        @Label("Defaults Time")
+        @Timespan
+        long defaultsTime;
+    }
+
+    /**
+     * Config data was requested from a URL.
+     */
+    @Name("com.aayushatharva.confparse.Fetch")
+    @Label("Config Fetch")
+    @Category("ConfParse")
+    static final class FetchEvent extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("Status")
+        int status;
+
+        @Label("Cached")
+        boolean cached;
+
+        @Label("Fetch Time")
+        @Timespan
+        long fetchTime;
+    }
+
+    /**
+     * A watched or polled config was reloaded.
+     */
+    @Name("com.aayushatharva.confparse.Reload")
+    @Label("Config Reload")
+    @Category("ConfParse")
+    static final class ReloadEvent extends Event {
+
+        @Label("Source")
+        String source;
+
+        @Label("Changed Headers")
+        int changedHeaders;
+
+        @Label("Error")
+        String error;
+
+        @Label("Reload Time")
+        @Timespan
+        long reloadTime;
+    }
+}
@@ -0,0 +1,213 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.List;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+
+/**
+ * A frozen header which only holds where its section is in the retained
+ * source. Its keys are parsed when any of them is first read and then kept,
+ * so a header which is never read costs nothing beyond the scan which found
+ * it. Concurrent first reads parse the section once.
+ *
+ * A header merged over defaults or layered over another header is lazy as
+ * well if one of the two is, and is only merged when a key is first read.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseLazyHeader extends Header {
+
+    /**
+     * The keys passed to the header, which are never read.
+     */
+    private static final Key[] NO_KEYS = new Key[0];
+
+    /**
+     * The parser with the options the section is parsed with, or null if
+     * this header merges two headers.
+     */
+    private final ConfParseParser parser;
+
+    /**
+     * The retained source.
+     */
+    private final ConfParseSource source;
+
+    /**
+     * The start offset of the section, inclusive.
+     */
+    private final int start;
+
+    /**
+     * The end offset of the section, exclusive.
+     */
+    private final int end;
+
+    /**
+     * The upper header if this header merges two headers, otherwise null.
+     */
+    private final Header upper;
+
+    /**
+     * The lower header if this header merges two headers, otherwise null.
+     */
+    private final Header lower;
+
+    /**
+     * The parsed header, or null until a key is first read.
+     */
+    private volatile Header parsed;
+
+    /**
+     * Creates a new lazy header.
+     *
+     * @param HeaderName The HeaderName of the header.
+     * @param parser The parser with the options the section is parsed with.
+     * @param source The retained source.
+     * @param start The start offset of the section, inclusive.
+     * @param end The end offset of the section, exclusive.
+     */
+    ConfParseLazyHeader(String HeaderName, ConfParseParser parser, ConfParseSource source, int start, int end) {
+        super(HeaderName, NO_KEYS);
+        this.parser = parser;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.upper = null;
+        this.lower = null;
+    }
+
+    /**
+     * Creates a new lazy header which merges the given headers on first read.
+     *
+     * @param upper The upper header.
+     * @param lower The lower header.
+     */
+    private ConfParseLazyHeader(Header upper, Header lower) {
+        super(upper.getName(), NO_KEYS);
+        this.parser = null;
+        this.source = null;
+        this.start = 0;
+        this.end = 0;
+        this.upper = upper;
+        this.lower = lower;
+    }
+
+    /**
+     * Returns a header which merges the given headers once a key is first
+     * read.
+     *
+     * @param upper The upper header.
+     * @param lower The lower header.
+     * @return The lazily merged header.
+     * @see ConfParseConfig#merge(Header, Header)
+     */
+    static Header merged(Header upper, Header lower) {
+        return new ConfParseLazyHeader(upper, lower);
+    }
+
+    /**
+     * Returns whether the section of this header has been parsed.
+     *
+     * @return True if the keys have been parsed.
+     */
+    boolean isParsed() {
+        return parsed != null;
+    }
+
+    /**
+     * Returns the parsed header, parsing the section on first use.
+     *
+     * @return The parsed header.
+     */
+    private Header parsed() {
+        Header header = parsed;
+        if (header == null) {
+            synchronized (this) {
+                header = parsed;
+                if (header == null) {
+                    header = parser != null ? parser.parseSection(getName(), source, start, end) : ConfParseConfig.mergeNow(upper, lower).freeze();
+                    parsed = header;
+                }
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Returns whether the given header is known to have the same keys as this
+     * header without parsing either of them. This is the case if both are
+     * built from sections with the same text, or merge such headers.
+     *
+     * @param other The other header.
+     * @return True if both headers have the same keys.
+     */
+    boolean hasSameSource(Header other) {
+        if (!(other instanceof ConfParseLazyHeader)) {
+            return false;
+        }
+
+        ConfParseLazyHeader o = (ConfParseLazyHeader) other;
+        if (parser == null) {
+            return o.parser == null && same(upper, o.upper) && same(lower, o.lower);
+        }
+        if (o.parser == null || end - start != o.end - o.start) {
+            return false;
+        }
+
+        for (int i = 0; i < end - start; i++) {
+            if (source.charAt(start + i) != o.source.charAt(o.start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the given headers are the same header or lazy headers
+     * with the same source.
+     *
+     * @param a The first header.
+     * @param b The second header.
+     * @return True if both headers have the same keys.
+     */
+    static boolean same(Header a, Header b) {
+        return a == b || (a instanceof ConfParseLazyHeader && ((ConfParseLazyHeader) a).hasSameSource(b));
+    }
+
+    @Override
+    public boolean hasKey(String key) {
+        return parsed().hasKey(key);
+    }
+
+    @Override
+    public Key getKey(String key) {
+        return parsed().getKey(key);
+    }
+
+    @Override
+    public int getKeyCount() {
+        return parsed().getKeyCount();
+    }
+
+    @Override
+    public List<Key> getKeys() {
+        return parsed().getKeys();
+    }
+}
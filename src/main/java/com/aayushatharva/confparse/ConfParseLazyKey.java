@@ -0,0 +1,142 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+
+/**
+ * A frozen key which only holds the offsets of its values in the retained
+ * source. A value and its text are created when the value is first read and
+ * then kept, so a key which is never read costs a single int array.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseLazyKey extends Key {
+
+    /**
+     * The values of the key.
+     */
+    private final Values values;
+
+    /**
+     * Creates a new lazy key.
+     *
+     * @param KeyName The KeyName of the key.
+     * @param source The retained source.
+     * @param spans The start and end offsets of every value in the source.
+     */
+    ConfParseLazyKey(String KeyName, ConfParseSource source, int[] spans) {
+        this(KeyName, new Values(source, spans));
+    }
+
+    private ConfParseLazyKey(String KeyName, Values values) {
+        super(KeyName, values);
+        this.values = values;
+    }
+
+    /**
+     * Returns the text of the given value, straight from the source if the
+     * value has not been created yet.
+     *
+     * @param index The index of the value.
+     * @return The text of the value.
+     */
+    @Override
+    protected String getText(int index) {
+        return values.text(index);
+    }
+
+    /**
+     * The values of a lazy key, created on first access. Concurrent first
+     * reads of the same value agree on a single instance.
+     */
+    private static final class Values extends AbstractList<Value> implements RandomAccess {
+
+        private static final VarHandle VALUES;
+
+        private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Value[].class);
+
+        static {
+            try {
+                VALUES = MethodHandles.lookup().findVarHandle(Values.class, "values", Value[].class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final ConfParseSource source;
+
+        private final int[] spans;
+
+        /**
+         * The values created so far, or null until the first value is read.
+         */
+        private Value[] values;
+
+        private Values(ConfParseSource source, int[] spans) {
+            this.source = source;
+            this.spans = spans;
+        }
+
+        @Override
+        public Value get(int index) {
+            Objects.checkIndex(index, size());
+
+            Value[] created = (Value[]) VALUES.getAcquire(this);
+            if (created == null) {
+                Value[] array = new Value[size()];
+                created = (Value[]) VALUES.compareAndExchangeRelease(this, null, array);
+                if (created == null) {
+                    created = array;
+                }
+            }
+
+            Value value = (Value) ELEMENTS.getAcquire(created, index);
+            if (value == null) {
+                Value fresh = Value.of(source.token(spans[index * 2], spans[index * 2 + 1]));
+                value = (Value) ELEMENTS.compareAndExchangeRelease(created, index, null, fresh);
+                if (value == null) {
+                    value = fresh;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Returns the text of the given value without creating the value.
+         *
+         * @param index The index of the value.
+         * @return The text of the value.
+         */
+        private String text(int index) {
+            Value[] created = (Value[]) VALUES.getAcquire(this);
+            Value value = created == null ? null : (Value) ELEMENTS.getAcquire(created, index);
+            return value != null ? value.asString() : source.substring(spans[index * 2], spans[index * 2 + 1]);
+        }
+
+        @Override
+        public int size() {
+            return spans.length / 2;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.List;
+
+/**
+ * Receives the changes of a reloaded config.
+ *
+ * @author Aayush Atharva
+ * @see ConfParseConfig#addListener(ConfParseListener)
+ */
+@FunctionalInterface
+public interface ConfParseListener {
+
+    /**
+     * Called with the changes of a reload which concern this listener.
+     *
+     * @param events The changes, never empty.
+     */
+    void changed(List<ConfParseChangeEvent> events);
+}
@@ -0,0 +1,147 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+/**
+ * The timings and counts of loading a config.
+ *
+ * When a file or URL is parsed while it is read, reading and parsing cannot be
+ * told apart and the whole time is counted as parse time.
+ *
+ * @author Aayush Atharva
+ * @see ConfParseMetrics#loaded(ConfParseLoadStats)
+ */
+public final class ConfParseLoadStats {
+
+    private final String source;
+
+    private final long bytes;
+
+    private final int lines;
+
+    private final int headers;
+
+    private final int keys;
+
+    private final long readNanos;
+
+    private final long parseNanos;
+
+    private final long defaultsNanos;
+
+    ConfParseLoadStats(String source, long bytes, int lines, int headers, int keys, long readNanos, long parseNanos, long defaultsNanos) {
+        this.source = source;
+        this.bytes = bytes;
+        this.lines = lines;
+        this.headers = headers;
+        this.keys = keys;
+        this.readNanos = readNanos;
+        this.parseNanos = parseNanos;
+        this.defaultsNanos = defaultsNanos;
+    }
+
+    /**
+     * Returns the file or URL the config was loaded from, or "data" for
+     * configs built from data.
+     *
+     * @return The source of the config.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the size of the loaded data in bytes, in characters for configs
+     * built from data, or -1 if it is unknown.
+     *
+     * @return The size of the data.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of non-empty and non-comment lines parsed.
+     *
+     * @return The number of lines.
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the number of headers of the config, including default headers.
+     *
+     * @return The number of headers.
+     */
+    public int getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the number of keys of all headers of the config. Keys of
+     * headers which are only parsed when they are first read are not counted
+     * until then.
+     *
+     * @return The number of keys.
+     */
+    public int getKeys() {
+        return keys;
+    }
+
+    /**
+     * Returns the time spent reading or fetching the data, in nanoseconds.
+     *
+     * @return The read time.
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Returns the time spent parsing the data, in nanoseconds.
+     *
+     * @return The parse time.
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Returns the time spent applying the defaults, in nanoseconds.
+     *
+     * @return The time spent on defaults.
+     */
+    public long getDefaultsNanos() {
+        return defaultsNanos;
+    }
+
+    /**
+     * Returns the total time of the load, in nanoseconds.
+     *
+     * @return The total time.
+     */
+    public long getTotalNanos() {
+        return readNanos + parseNanos + defaultsNanos;
+    }
+
+    @Override
+    public String toString() {
+        return source + " " + bytes + " bytes, " + lines + " lines, " + headers + " headers, " + keys + " keys, read "
+                + readNanos + " ns, parse " + parseNanos + " ns, defaults " + defaultsNanos + " ns";
+    }
+}
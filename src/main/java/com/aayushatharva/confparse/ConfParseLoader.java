@@ -0,0 +1,255 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+
+/**
+ * Builds configs asynchronously on an executor, with a deadline and
+ * cancellation.
+ *
+ * A build which is cancelled or misses its deadline fails right away and its
+ * thread is interrupted. Reads through a file channel, like those of
+ * incremental, parallel and memory-mapped builds, stop on the interrupt.
+ * Requests to URLs are bounded by the connect and read timeouts of the
+ * builder instead. Builds which read a channel passed by the caller are
+ * never interrupted, as an interrupt would close the channel.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseLoader {
+
+    /**
+     * The executor builds run on if the caller does not pass one, created on
+     * first use.
+     */
+    private static volatile Executor defaultExecutor;
+
+    /**
+     * The timer deadlines are scheduled on, created on first use.
+     */
+    private static volatile ScheduledThreadPoolExecutor timer;
+
+    private ConfParseLoader() {
+    }
+
+    /**
+     * Returns the executor builds run on by default. It runs up to twice as
+     * many builds at a time as there are processors, at least four, as loads
+     * mostly wait for I/O. Further builds wait in a queue. Its daemon threads
+     * end after a minute without work.
+     *
+     * @return The default executor.
+     */
+    static Executor getDefaultExecutor() {
+        Executor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (ConfParseLoader.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "ConfParse-Loader");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    pool.allowCoreThreadTimeOut(true);
+                    defaultExecutor = executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the timer deadlines are scheduled on. Cancelled deadlines are
+     * removed from it right away, so a finished build is not kept reachable
+     * until its deadline.
+     *
+     * @return The timer.
+     */
+    static ScheduledThreadPoolExecutor getTimer() {
+        ScheduledThreadPoolExecutor scheduler = timer;
+        if (scheduler == null) {
+            synchronized (ConfParseLoader.class) {
+                scheduler = timer;
+                if (scheduler == null) {
+                    scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                        Thread thread = new Thread(runnable, "ConfParse-Deadline");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    scheduler.setRemoveOnCancelPolicy(true);
+                    timer = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Builds the config of the given builder on the given executor.
+     *
+     * @param ConfParseBuilder The builder instance.
+     * @param executor The executor.
+     * @param timeoutMillis The deadline of the build in milliseconds, 0 for
+     * none.
+     * @return The future config.
+     */
+    static CompletableFuture<ConfParseConfig> submit(ConfParse.ConfParser ConfParseBuilder, Executor executor, long timeoutMillis) {
+        CompletableFuture<ConfParseConfig> future = new CompletableFuture<>();
+        Task task = new Task(ConfParseBuilder, future);
+
+        // Interrupt The Build Once It Is Cancelled Or Timed Out
+        if (!ConfParseBuilder.readsChannel()) {
+            future.whenComplete((config, error) -> task.interrupt());
+        }
+
+        if (timeoutMillis > 0) {
+            String source = ConfParseBuilder.getSource();
+            ScheduledFuture<?> deadline = getTimer().schedule(() -> future.completeExceptionally(
+                    new ConfParseLoadConfigException("Config from " + source + " did not load within " + timeoutMillis + " ms")), timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((config, error) -> deadline.cancel(false));
+        }
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new ConfParseLoadConfigException("Could not start loading config from " + ConfParseBuilder.getSource()));
+        }
+
+        return future;
+    }
+
+    /**
+     * Builds the configs of the given builders on the given executor.
+     *
+     * @param builders The builder instances.
+     * @param executor The executor.
+     * @return The future configs, in the order of the builders.
+     */
+    static CompletableFuture<List<ConfParseConfig>> submitAll(List<ConfParse.ConfParser> builders, Executor executor) {
+        List<CompletableFuture<ConfParseConfig>> futures = new ArrayList<>(builders.size());
+        CompletableFuture<List<ConfParseConfig>> all = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(builders.size());
+
+        if (builders.isEmpty()) {
+            all.complete(new ArrayList<>());
+            return all;
+        }
+
+        for (ConfParse.ConfParser builder : builders) {
+            futures.add(builder.BuildAsync(executor));
+        }
+
+        for (CompletableFuture<ConfParseConfig> future : futures) {
+            future.whenComplete((config, error) -> {
+                if (error != null) {
+                    all.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                } else if (remaining.decrementAndGet() == 0) {
+                    List<ConfParseConfig> configs = new ArrayList<>(futures.size());
+                    for (CompletableFuture<ConfParseConfig> f : futures) {
+                        configs.add(f.join());
+                    }
+                    all.complete(configs);
+                }
+            });
+        }
+
+        // The First Failure Or A Cancel Stops All Loads Still Running
+        all.whenComplete((configs, error) -> {
+            if (error != null) {
+                for (CompletableFuture<ConfParseConfig> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        });
+
+        return all;
+    }
+
+    /**
+     * A build running on an executor.
+     */
+    private static final class Task implements Runnable {
+
+        private final ConfParse.ConfParser ConfParseBuilder;
+
+        private final CompletableFuture<ConfParseConfig> future;
+
+        /**
+         * The thread running the build, or null if it is not running.
+         */
+        private Thread runner;
+
+        private Task(ConfParse.ConfParser ConfParseBuilder, CompletableFuture<ConfParseConfig> future) {
+            this.ConfParseBuilder = ConfParseBuilder;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (future.isDone()) {
+                    return;  // Cancelled Before It Started
+                }
+                runner = Thread.currentThread();
+            }
+
+            ConfParseConfig config = null;
+            Throwable error = null;
+            try {
+                config = ConfParseBuilder.Build();
+            } catch (ConfParseException | RuntimeException e) {
+                error = e;
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                Thread.interrupted();  // Never Leak An Interrupt Into The Executor
+            }
+
+            if (error == null) {
+                future.complete(config);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+
+        /**
+         * Interrupts the build if it is still running.
+         */
+        private synchronized void interrupt() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
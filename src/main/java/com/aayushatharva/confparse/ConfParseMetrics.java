@@ -0,0 +1,64 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.net.URL;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+
+/**
+ * Receives measurements of loading configs. All methods do nothing by default,
+ * so an implementation only overrides what it records. Methods are called on
+ * the thread which loads the config and should return quickly.
+ *
+ * @author Aayush Atharva
+ * @see ConfParse.ConfParser#metrics(ConfParseMetrics)
+ * @see ConfParseJfr
+ */
+public interface ConfParseMetrics {
+
+    /**
+     * Called after a config has been loaded successfully.
+     *
+     * @param stats The timings and counts of the load.
+     */
+    default void loaded(ConfParseLoadStats stats) {
+    }
+
+    /**
+     * Called after config data has been requested from a URL.
+     *
+     * @param url The URL.
+     * @param status The HTTP status code, or -1 if the URL is not an HTTP URL
+     * or no response was received.
+     * @param cached True if the data of the cache file is used instead.
+     * @param nanos The time the request took, in nanoseconds.
+     */
+    default void fetched(URL url, int status, boolean cached, long nanos) {
+    }
+
+    /**
+     * Called after a watched or polled config has been reloaded.
+     *
+     * @param source The file or URL of the config.
+     * @param changedHeaders The number of changed headers, 0 if the config was
+     * not reloaded because it has not changed.
+     * @param error The error if the reload failed, otherwise null.
+     * @param nanos The time the reload took, in nanoseconds.
+     */
+    default void reloaded(String source, int changedHeaders, ConfParseException error, long nanos) {
+    }
+}
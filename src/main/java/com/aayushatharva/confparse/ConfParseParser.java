@@ -0,0 +1,856 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+
+/**
+ * Parses config data line by line into headers, keys and values.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseParser {
+
+    /**
+     * The initial size of the read buffer used for readers.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The smallest source which is split into sections and parsed in
+     * parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * The smallest part of the source parsed by a single task.
+     */
+    private static final int MIN_PART_SIZE = 64 * 1024;
+
+    /**
+     * The byte order mark which may start a UTF-8 file.
+     */
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /**
+     * The directive which includes another config.
+     */
+    private static final String INCLUDE = "@include";
+
+    /**
+     * The map the parsed headers are put into.
+     */
+    private final Map<String, Header> headers;
+
+    /**
+     * The tokenizer used to split key lines.
+     */
+    private final ConfParseTokenizer tokenizer = new ConfParseTokenizer();
+
+    /**
+     * The header the following keys belong to.
+     */
+    private Header currentHeader;
+
+    /**
+     * The number of non-empty and non-comment lines parsed.
+     */
+    private int lines;
+
+    /**
+     * The map the section hashes are put into, or null if sections are not
+     * hashed.
+     */
+    private Map<String, Long> hashes;
+
+    /**
+     * The set the names of changed headers are added to.
+     */
+    private Set<String> changed;
+
+    /**
+     * The headers of the previous parse which can be reused.
+     */
+    private Map<String, Header> previousHeaders = Collections.emptyMap();
+
+    /**
+     * The section hashes of the previous parse.
+     */
+    private Map<String, Long> previousHashes = Collections.emptyMap();
+
+    /**
+     * The pool large sources are parsed on in parallel, or null to parse them
+     * sequentially.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The interner parsed names and values are shared through, or null.
+     */
+    private ConfParseInterner interner;
+
+    /**
+     * The loader of included configs, or null if include directives are not
+     * resolved.
+     */
+    private ConfParseIncludes includes;
+
+    /**
+     * Whether the headers of included configs are only added by
+     * {@link #included()} instead of at the end of a parse.
+     */
+    private boolean deferIncludes;
+
+    /**
+     * Whether values are only created when they are first read.
+     */
+    private boolean lazy;
+
+    /**
+     * Whether the keys of a header are only parsed when the header is first
+     * read.
+     */
+    private boolean lazyHeaders;
+
+    /**
+     * The includes in the order of their directives.
+     */
+    private List<Include> pending;
+
+    /**
+     * The position of the header or include which last set each header. Only
+     * tracked if include directives are resolved.
+     */
+    private Map<String, Integer> order;
+
+    /**
+     * The position of the next header or include.
+     */
+    private int sequence;
+
+    /**
+     * Creates a new parser which puts the parsed headers into the given map.
+     *
+     * @param headers The map to put the headers into.
+     */
+    ConfParseParser(Map<String, Header> headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Makes this parser hash the section of every header. Only supported when
+     * parsing a whole {@link ConfParseSource}.
+     *
+     * @param hashes The map to put the section hashes into.
+     * @param changed The set to add the names of headers to which are new,
+     * removed or have a changed section compared to the previous parse.
+     * @return This parser.
+     */
+    ConfParseParser hashSections(Map<String, Long> hashes, Set<String> changed) {
+        this.hashes = hashes;
+        this.changed = changed;
+        return this;
+    }
+
+    /**
+     * Makes this parser reuse the headers of a previous parse whose sections
+     * have not changed instead of parsing them again.
+     *
+     * @param headers The headers of the previous parse.
+     * @param hashes The section hashes of the previous parse.
+     * @return This parser.
+     */
+    ConfParseParser reuse(Map<String, Header> headers, Map<String, Long> hashes) {
+        this.previousHeaders = headers;
+        this.previousHashes = hashes;
+        return this;
+    }
+
+    /**
+     * Makes this parser split large sources at header lines and parse the
+     * parts in parallel on the given pool. Ignored if sections are hashed.
+     *
+     * @param pool The pool, or null to parse sequentially.
+     * @return This parser.
+     */
+    ConfParseParser parallel(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Makes this parser share repeated names and values through the given
+     * interner.
+     *
+     * @param interner The interner, or null to not share.
+     * @return This parser.
+     */
+    ConfParseParser intern(ConfParseInterner interner) {
+        this.interner = interner;
+        return this;
+    }
+
+    /**
+     * Makes this parser keep only the offsets of the values of every key in
+     * the source, creating the values when they are first read. Only used for
+     * sources which are retained, and values are not shared through the
+     * interner then.
+     *
+     * @param lazy True to create values lazily.
+     * @return This parser.
+     */
+    ConfParseParser lazy(boolean lazy) {
+        this.lazy = lazy;
+        return this;
+    }
+
+    /**
+     * Makes this parser only scan the source for headers and keep the offsets
+     * of the section of every header, parsing its keys when the header is
+     * first read. Only used for sources which are retained and ignored if
+     * sections are hashed.
+     *
+     * @param lazyHeaders True to parse the keys of headers lazily.
+     * @return This parser.
+     */
+    ConfParseParser lazyHeaders(boolean lazyHeaders) {
+        this.lazyHeaders = lazyHeaders;
+        return this;
+    }
+
+    /**
+     * Returns whether the parsed config keeps offsets into the source, so the
+     * source has to be read as a whole instead of being streamed.
+     *
+     * @return True if the source is kept.
+     */
+    boolean retainsSource() {
+        return lazy || lazyHeaders;
+    }
+
+    /**
+     * Makes this parser resolve {@code @include} directives through the given
+     * loader. An include ends the current header. The headers of the included
+     * config are put into the parsed config as if they had been written at the
+     * place of the directive.
+     *
+     * @param includes The loader, or null to not resolve includes.
+     * @return This parser.
+     */
+    ConfParseParser includes(ConfParseIncludes includes) {
+        this.includes = includes;
+        if (includes != null) {
+            pending = new ArrayList<>();
+            order = new HashMap<>();
+        }
+        return this;
+    }
+
+    /**
+     * Makes a parse return without waiting for the configs it includes. Their
+     * headers are added once the future returned by {@link #included()}
+     * completes, so a fragment being parsed on a pool thread never blocks it.
+     *
+     * @return This parser.
+     */
+    ConfParseParser deferIncludes() {
+        this.deferIncludes = true;
+        return this;
+    }
+
+    /**
+     * Returns a future which adds the headers of the configs included by the
+     * last parse once they are loaded. Only needed if the includes are
+     * deferred.
+     *
+     * @return The future, completed exceptionally with the error of the first
+     * include which could not be loaded.
+     */
+    CompletableFuture<Void> included() {
+        if (pending == null || pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<?>[] fragments = new CompletableFuture<?>[pending.size()];
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = pending.get(i).fragment;
+        }
+
+        // Add The Headers In The Order Of The Directives Once All Are Loaded
+        return CompletableFuture.allOf(fragments).handle((ignored, error) -> {
+            try {
+                addIncluded();
+            } catch (ConfParseException e) {
+                throw new CompletionException(e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Parses the config while reading it from the given reader. Complete lines
+     * are parsed straight out of the read buffer, so the config is never held
+     * in memory as a whole.
+     *
+     * @param reader The reader to parse the config from.
+     * @return The number of non-empty and non-comment lines parsed.
+     * @throws IOException If the reader could not be read.
+     * @throws ConfParseException If something went wrong during the parsing.
+     */
+    int parse(Reader reader) throws IOException, ConfParseException {
+        char[] buffer = new char[BUFFER_SIZE];
+        ConfParseSource.CharArraySource source = ConfParseSource.of(buffer, 0);
+        int length = 0;
+
+        int read;
+        boolean first = true;
+        while ((read = reader.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+
+            // Skip A Leading Byte Order Mark Like The Byte Sources Do
+            if (first && length > 0) {
+                first = false;
+                if (buffer[0] == BYTE_ORDER_MARK) {
+                    length--;
+                    System.arraycopy(buffer, 1, buffer, 0, length);
+                }
+            }
+            source.reset(buffer, length);
+
+            // Parse All Complete Lines In The Buffer
+            int start = 0;
+            int end;
+            while ((end = ConfParseTokenizer.lineEnd(source, start)) < length) {
+                parseLine(source, start, end);
+                start = end + 1;
+            }
+
+            // Move The Incomplete Last Line To The Front
+            length -= start;
+            System.arraycopy(buffer, start, buffer, 0, length);
+
+            // Grow The Buffer If A Single Line Does Not Fit In It
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+
+        source.reset(buffer, length);
+        parseLine(source, 0, length);
+
+        return finish();
+    }
+
+    /**
+     * Parses the whole given source.
+     *
+     * @param source The source to parse.
+     * @return The number of non-empty and non-comment lines parsed.
+     * @throws ConfParseException If something went wrong during the parsing.
+     */
+    int parse(ConfParseSource source) throws ConfParseException {
+        int length = source.length();
+
+        if (lazyHeaders && hashes == null && source.isRetained()) {
+            return scan(source);
+        }
+
+        if (pool != null && hashes == null && length >= PARALLEL_THRESHOLD) {
+            List<Part> parts = split(source);
+            if (parts.size() > 1) {
+                return parse(parts);
+            }
+        }
+
+        int start = 0;
+        while (start < length) {
+            int end = ConfParseTokenizer.lineEnd(source, start);
+
+            if (hashes != null && reuseSection(source, start, end)) {
+                start = ConfParseTokenizer.sectionEnd(source, Math.min(end + 1, length));
+                continue;
+            }
+
+            parseLine(source, start, end);
+            start = end + 1;
+        }
+
+        // Report Removed Headers
+        if (hashes != null) {
+            for (String name : previousHashes.keySet()) {
+                if (!hashes.containsKey(name)) {
+                    changed.add(name);
+                }
+            }
+        }
+
+        return finish();
+    }
+
+    /**
+     * Scans the whole given source for header lines and include directives.
+     * Every header is put as a {@link ConfParseLazyHeader} which only knows
+     * where its section is, and key lines are just trimmed, so the result and
+     * the errors are the same as with a full parse.
+     *
+     * @param source The source to scan.
+     * @return The number of non-empty and non-comment lines scanned.
+     * @throws ConfParseException If something went wrong during the scan.
+     */
+    private int scan(ConfParseSource source) throws ConfParseException {
+        ConfParseParser sections = new ConfParseParser(null).intern(interner).lazy(lazy);
+        int length = source.length();
+
+        String name = null;
+        int sectionStart = 0;
+        int sectionEnd = 0;
+
+        int start = 0;
+        while (start < length) {
+            int end = ConfParseTokenizer.lineEnd(source, start);
+            int trimmedStart = ConfParseTokenizer.trimStart(source, start, end);
+            int trimmedEnd = ConfParseTokenizer.trimEnd(source, trimmedStart, end);
+            start = end + 1;
+
+            // Skip Empty Lines And Comments
+            if (trimmedStart == trimmedEnd || source.charAt(trimmedStart) == '#') {
+                continue;
+            }
+
+            lines++;
+
+            boolean include = includes != null && isInclude(source, trimmedStart, trimmedEnd);
+            if (include || source.charAt(trimmedEnd - 1) == ':') {
+
+                // A Header Or An Include Ends The Current Section
+                if (name != null) {
+                    putHeader(new ConfParseLazyHeader(name, sections, source, sectionStart, sectionEnd));
+                    name = null;
+                }
+
+                if (include) {
+                    String path = source.substring(ConfParseTokenizer.trimStart(source, trimmedStart + INCLUDE.length(), trimmedEnd), trimmedEnd);
+                    pending.add(new Include(includes.load(path), sequence++));
+                } else {
+                    name = name(source.substring(trimmedStart, trimmedEnd - 1));
+                    sectionStart = Math.min(end + 1, length);
+                    sectionEnd = sectionStart;
+                }
+            } else if (name == null) {
+                throw new ConfParseInvalidConfigException("at least one header at the top is needed");
+            } else {
+                sectionEnd = end;
+            }
+        }
+
+        if (name != null) {
+            putHeader(new ConfParseLazyHeader(name, sections, source, sectionStart, sectionEnd));
+        }
+
+        return finish();
+    }
+
+    /**
+     * Parses the key lines of a section found by a scan into a frozen header.
+     * A tokenizer of its own is used, so sections can be parsed concurrently.
+     *
+     * @param name The name of the header.
+     * @param source The retained source.
+     * @param start The start offset of the section, inclusive.
+     * @param end The end offset of the section, exclusive.
+     * @return The frozen header.
+     */
+    Header parseSection(String name, ConfParseSource source, int start, int end) {
+        ConfParseTokenizer sectionTokenizer = new ConfParseTokenizer();
+        Header header = new Header(name);
+
+        while (start < end) {
+            int lineEnd = Math.min(ConfParseTokenizer.lineEnd(source, start), end);
+            int trimmedStart = ConfParseTokenizer.trimStart(source, start, lineEnd);
+            int trimmedEnd = ConfParseTokenizer.trimEnd(source, trimmedStart, lineEnd);
+
+            if (trimmedStart < trimmedEnd && source.charAt(trimmedStart) != '#') {
+                header.addKey(key(sectionTokenizer, source, trimmedStart, trimmedEnd));
+            }
+            start = lineEnd + 1;
+        }
+
+        return header.freeze();
+    }
+
+    /**
+     * Splits the given source into parts which start at header lines.
+     *
+     * @param source The source.
+     * @return The parts in the order of the source.
+     */
+    private List<Part> split(ConfParseSource source) {
+        int length = source.length();
+        int partSize = Math.max(MIN_PART_SIZE, length / (pool.getParallelism() * 4));
+
+        // Split At The First Header Line After Every Part Size
+        List<Part> parts = new ArrayList<>();
+        int start = 0;
+        while (start < length) {
+            int end = length;
+            if (length - start > partSize) {
+                int lineStart = Math.min(ConfParseTokenizer.lineEnd(source, start + partSize) + 1, length);
+                end = ConfParseTokenizer.sectionEnd(source, lineStart);
+            }
+            parts.add(new Part(source, start, end, new ConfParseParser(new HashMap<>()).intern(interner).includes(includes).lazy(lazy)));
+            start = end;
+        }
+        return parts;
+    }
+
+    /**
+     * Parses the given parts of a source in parallel. The headers of the parts are merged in the
+     * order of the parts, so a header which occurs more than once ends up the
+     * same as with a sequential parse. If parts fail, the error of the first
+     * failed part is thrown, which is the error a sequential parse would have
+     * thrown. Includes are only waited for on the calling thread once all
+     * parts are parsed, so no pool thread blocks on them.
+     *
+     * @param parts The parts to parse.
+     * @return The number of non-empty and non-comment lines parsed.
+     * @throws ConfParseException If something went wrong during the parsing.
+     */
+    private int parse(List<Part> parts) throws ConfParseException {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(parts);
+            }
+        });
+
+        for (Part part : parts) {
+            if (part.error != null) {
+                throw part.error;
+            }
+        }
+
+        // Resolve Includes Here Like A Sequential Parse Does At The End
+        for (Part part : parts) {
+            lines += part.parser.finish();
+            headers.putAll(part.parser.headers);
+        }
+
+        return lines;
+    }
+
+    /**
+     * Hashes the section of the given line if it is a header line and reuses
+     * the previous header if the section has not changed.
+     *
+     * @param source The source.
+     * @param start The start offset of the line, inclusive.
+     * @param end The end offset of the line, exclusive.
+     * @return True if the previous header was reused and its section can be
+     * skipped.
+     */
+    private boolean reuseSection(ConfParseSource source, int start, int end) {
+        int trimmedStart = ConfParseTokenizer.trimStart(source, start, end);
+        int trimmedEnd = ConfParseTokenizer.trimEnd(source, trimmedStart, end);
+
+        if (!ConfParseTokenizer.isHeader(source, trimmedStart, trimmedEnd)) {
+            return false;
+        }
+
+        String name = source.substring(trimmedStart, trimmedEnd - 1);
+        int sectionStart = Math.min(end + 1, source.length());
+        int sectionEnd = ConfParseTokenizer.sectionEnd(source, sectionStart);
+        long hash = ConfParseTokenizer.hash(source, sectionStart, sectionEnd);
+        hashes.put(name, hash);
+
+        Long previousHash = previousHashes.get(name);
+        Header previousHeader = previousHeaders.get(name);
+        if (previousHash == null || previousHash != hash || previousHeader == null) {
+            changed.add(name);
+            return false;
+        }
+
+        // Reuse The Unchanged Header
+        if (currentHeader != null) {
+            putHeader(currentHeader);
+            currentHeader = null;
+        }
+        putHeader(previousHeader);
+        lines += 1 + countLines(source, sectionStart, sectionEnd);
+
+        return true;
+    }
+
+    /**
+     * Returns the number of non-empty and non-comment lines in the given
+     * range, which a parse of the range would have counted.
+     *
+     * @param source The source.
+     * @param start The start offset of the range, inclusive.
+     * @param end The end offset of the range, exclusive.
+     * @return The number of lines.
+     */
+    private static int countLines(ConfParseSource source, int start, int end) {
+        int count = 0;
+        while (start < end) {
+            int lineEnd = Math.min(ConfParseTokenizer.lineEnd(source, start), end);
+            int trimmedStart = ConfParseTokenizer.trimStart(source, start, lineEnd);
+            if (trimmedStart < lineEnd && source.charAt(trimmedStart) != '#') {
+                count++;
+            }
+            start = lineEnd + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Parses a single line.
+     *
+     * @param source The source.
+     * @param start The start offset of the line, inclusive.
+     * @param end The end offset of the line, exclusive.
+     * @throws ConfParseException If the line could not be parsed.
+     */
+    private void parseLine(ConfParseSource source, int start, int end) throws ConfParseException {
+        start = ConfParseTokenizer.trimStart(source, start, end);
+        end = ConfParseTokenizer.trimEnd(source, start, end);
+
+        // Skip Empty Lines And Comments
+        if (start == end || source.charAt(start) == '#') {
+            return;
+        }
+
+        lines++;
+
+        if (includes != null && isInclude(source, start, end)) {
+
+            // An Include Ends The Current Header
+            if (currentHeader != null) {
+                putHeader(currentHeader);
+                currentHeader = null;
+            }
+
+            String path = source.substring(ConfParseTokenizer.trimStart(source, start + INCLUDE.length(), end), end);
+            pending.add(new Include(includes.load(path), sequence++));
+        } else if (source.charAt(end - 1) == ':') {
+
+            if (currentHeader != null) {
+                putHeader(currentHeader);
+            }
+
+            currentHeader = new Header(name(source.substring(start, end - 1)));
+        } else {
+
+            if (currentHeader == null) {
+                throw new ConfParseInvalidConfigException("at least one header at the top is needed");
+            }
+
+            currentHeader.addKey(key(tokenizer, source, start, end));
+        }
+    }
+
+    /**
+     * Creates the key of the given trimmed key line.
+     *
+     * @param lineTokenizer The tokenizer to split the line with.
+     * @param source The source.
+     * @param start The trimmed start offset of the line, inclusive.
+     * @param end The trimmed end offset of the line, exclusive.
+     * @return The key.
+     */
+    private Key key(ConfParseTokenizer lineTokenizer, ConfParseSource source, int start, int end) {
+        int tokens = lineTokenizer.tokenize(source, start, end);
+        String keyName = name(source.substring(lineTokenizer.start(0), lineTokenizer.end(0)));
+
+        // Keep Only Where The Values Are
+        if (lazy && source.isRetained()) {
+            int[] spans = new int[(tokens - 1) * 2];
+            for (int i = 1; i < tokens; i++) {
+                spans[i * 2 - 2] = lineTokenizer.start(i);
+                spans[i * 2 - 1] = lineTokenizer.end(i);
+            }
+            return new ConfParseLazyKey(keyName, source, spans);
+        }
+
+        Key keyData = new Key(keyName);
+        for (int i = 1; i < tokens; i++) {
+            if (interner != null) {
+                keyData.addValue(interner.value(source.substring(lineTokenizer.start(i), lineTokenizer.end(i))));
+            } else {
+                keyData.addValue(Value.of(source.token(lineTokenizer.start(i), lineTokenizer.end(i))));
+            }
+        }
+        return keyData;
+    }
+
+    /**
+     * Returns the shared instance of the given header or key name.
+     *
+     * @param name The name.
+     * @return The shared name, or the given name if names are not shared.
+     */
+    private String name(String name) {
+        return interner == null ? name : interner.name(name);
+    }
+
+    /**
+     * Returns whether the given trimmed line is an include directive.
+     *
+     * @param source The source.
+     * @param start The trimmed start offset of the line, inclusive.
+     * @param end The trimmed end offset of the line, exclusive.
+     * @return True if the line is an include directive.
+     */
+    private static boolean isInclude(ConfParseSource source, int start, int end) {
+        if (end - start <= INCLUDE.length() || source.charAt(start + INCLUDE.length()) > ' ') {
+            return false;
+        }
+
+        for (int i = 0; i < INCLUDE.length(); i++) {
+            if (source.charAt(start + i) != INCLUDE.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts the given header into the parsed headers.
+     *
+     * @param header The header.
+     */
+    private void putHeader(Header header) {
+        headers.put(header.getName(), header);
+        if (order != null) {
+            order.put(header.getName(), sequence++);
+        }
+    }
+
+    /**
+     * Adds the last header and the headers of the included configs.
+     *
+     * @return The number of non-empty and non-comment lines parsed.
+     * @throws ConfParseException If an included config could not be loaded or
+     * parsed.
+     */
+    private int finish() throws ConfParseException {
+        if (currentHeader != null) {
+            putHeader(currentHeader);
+            currentHeader = null;
+        }
+
+        if (pending != null && !deferIncludes) {
+            addIncluded();
+            includes.finished();
+        }
+
+        return lines;
+    }
+
+    /**
+     * Waits for the included configs and adds their headers.
+     *
+     * @throws ConfParseException If an included config could not be loaded or
+     * parsed.
+     */
+    private void addIncluded() throws ConfParseException {
+
+        // Headers Written After An Include Win Over The Included Ones
+        for (Include include : pending) {
+            ConfParseIncludes.Fragment fragment = includes.join(include.fragment);
+            for (Header header : fragment.getHeaders()) {
+                Integer defined = order.get(header.getName());
+                if (defined == null || defined < include.sequence) {
+                    headers.put(header.getName(), header);
+                    order.put(header.getName(), include.sequence);
+                }
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * An include directive and the fragment it is loading.
+     */
+    private static final class Include {
+
+        private final CompletableFuture<ConfParseIncludes.Fragment> fragment;
+
+        private final int sequence;
+
+        private Include(CompletableFuture<ConfParseIncludes.Fragment> fragment, int sequence) {
+            this.fragment = fragment;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * A part of a source which starts at a header line and is parsed by its
+     * own parser.
+     */
+    private static final class Part extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ConfParseSource source;
+
+        private final int start;
+
+        private final int end;
+
+        private final ConfParseParser parser;
+
+        private ConfParseException error;
+
+        private Part(ConfParseSource source, int start, int end, ConfParseParser parser) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.parser = parser;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                int from = start;
+                while (from < end) {
+                    int lineEnd = Math.min(ConfParseTokenizer.lineEnd(source, from), end);
+                    parser.parseLine(source, from, lineEnd);
+                    from = lineEnd + 1;
+                }
+            } catch (ConfParseException e) {
+                error = e;
+            }
+        }
+    }
+}
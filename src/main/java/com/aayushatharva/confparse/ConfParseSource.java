@@ -0,0 +1,279 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A random access view over raw config data which is scanned by the
+ * {@link ConfParseTokenizer}. Tokens are described by offsets into the source
+ * and only turned into strings when they are needed.
+ *
+ * @author Aayush Atharva
+ */
+abstract class ConfParseSource {
+
+    /**
+     * Returns the length of the source.
+     *
+     * @return The length of the source.
+     */
+    abstract int length();
+
+    /**
+     * Returns the character at the given offset.
+     *
+     * @param index The offset.
+     * @return The character at the offset.
+     */
+    abstract char charAt(int index);
+
+    /**
+     * Returns the text between the given offsets as a string.
+     *
+     * @param start The start offset, inclusive.
+     * @param end The end offset, exclusive.
+     * @return The text between the offsets.
+     */
+    abstract String substring(int start, int end);
+
+    /**
+     * Returns the text between the given offsets as a character sequence
+     * which is used as the backing text of a value.
+     *
+     * @param start The start offset, inclusive.
+     * @param end The end offset, exclusive.
+     * @return The text between the offsets.
+     */
+    CharSequence token(int start, int end) {
+        return substring(start, end);
+    }
+
+    /**
+     * Returns whether the text of this source stays the same after parsing,
+     * so tokens can be read from it later.
+     *
+     * @return True if this source is retained.
+     */
+    boolean isRetained() {
+        return true;
+    }
+
+    /**
+     * Creates a new source over the given string.
+     *
+     * @param Data The config data.
+     * @return A new source.
+     */
+    static ConfParseSource of(String Data) {
+        return new StringSource(Data);
+    }
+
+    /**
+     * Creates a new source over the given char buffer.
+     *
+     * @param buffer The buffer.
+     * @param length The number of valid characters in the buffer.
+     * @return A new source.
+     */
+    static CharArraySource of(char[] buffer, int length) {
+        CharArraySource source = new CharArraySource();
+        source.reset(buffer, length);
+        return source;
+    }
+
+    /**
+     * Creates a new source over the UTF-8 encoded bytes remaining in the given
+     * buffer. A leading byte order mark is skipped.
+     *
+     * Structural characters are all ASCII and never occur inside multi-byte
+     * UTF-8 sequences, so the bytes are scanned without decoding them.
+     *
+     * @param buffer The buffer.
+     * @return A new source.
+     */
+    static ConfParseSource of(ByteBuffer buffer) {
+        ByteBuffer data = buffer.slice();
+
+        if (data.remaining() >= 3 && (data.get(0) & 0xFF) == 0xEF && (data.get(1) & 0xFF) == 0xBB && (data.get(2) & 0xFF) == 0xBF) {
+            data.position(3);
+            data = data.slice();
+        }
+
+        return new ByteBufferSource(data);
+    }
+
+    /**
+     * A source backed by a string.
+     */
+    private static final class StringSource extends ConfParseSource {
+
+        private final String Data;
+
+        private StringSource(String Data) {
+            this.Data = Data;
+        }
+
+        @Override
+        int length() {
+            return Data.length();
+        }
+
+        @Override
+        char charAt(int index) {
+            return Data.charAt(index);
+        }
+
+        @Override
+        String substring(int start, int end) {
+            return Data.substring(start, end);
+        }
+    }
+
+    /**
+     * A source backed by a reusable char buffer.
+     */
+    static final class CharArraySource extends ConfParseSource {
+
+        private char[] buffer;
+
+        private int length;
+
+        /**
+         * Points this source to the given buffer.
+         *
+         * @param buffer The buffer.
+         * @param length The number of valid characters in the buffer.
+         */
+        void reset(char[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+
+        @Override
+        char charAt(int index) {
+            return buffer[index];
+        }
+
+        @Override
+        String substring(int start, int end) {
+            return new String(buffer, start, end - start);
+        }
+
+        @Override
+        boolean isRetained() {
+            return false;
+        }
+    }
+
+    /**
+     * A source backed by UTF-8 encoded bytes, for example a memory-mapped
+     * file or a buffer passed by the caller. Value tokens are decoded lazily.
+     */
+    private static final class ByteBufferSource extends ConfParseSource {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferSource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        String substring(int start, int end) {
+            if (buffer.hasArray()) {
+                return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+            }
+
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = buffer.duplicate();
+            view.position(start);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        CharSequence token(int start, int end) {
+            return new Utf8Token(this, start, end);
+        }
+    }
+
+    /**
+     * A token of a {@link ByteBufferSource} which is only decoded when its text
+     * is needed. The text is decoded once and then kept.
+     */
+    private static final class Utf8Token implements CharSequence {
+
+        private final ByteBufferSource source;
+
+        private final int start;
+
+        private final int end;
+
+        /**
+         * The decoded text, or null until it is first needed. Strings are
+         * immutable, so a racy decode only costs a second decode.
+         */
+        private String text;
+
+        private Utf8Token(ByteBufferSource source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            String decoded = text;
+            if (decoded == null) {
+                decoded = source.substring(start, end);
+                text = decoded;
+            }
+            return decoded;
+        }
+    }
+}
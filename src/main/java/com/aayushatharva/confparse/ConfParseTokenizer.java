@@ -0,0 +1,198 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.Arrays;
+
+/**
+ * A line tokenizer which scans a {@link ConfParseSource} character by
+ * character. Runs of spaces and tabs are treated as a single separator and
+ * every token is returned as a pair of offsets into the source, so no
+ * intermediate strings or arrays are created while a line is split.
+ *
+ * @author Aayush Atharva
+ */
+final class ConfParseTokenizer {
+
+    /**
+     * The start and end offsets of the tokens of the last tokenized line.
+     */
+    private int[] offsets = new int[32];
+
+    /**
+     * The number of tokens of the last tokenized line.
+     */
+    private int count;
+
+    /**
+     * Returns the offset of the next line feed at or after the given offset,
+     * or the length of the source if there is none.
+     *
+     * @param source The source.
+     * @param from The offset to start at.
+     * @return The end offset of the line.
+     */
+    static int lineEnd(ConfParseSource source, int from) {
+        int length = source.length();
+        while (from < length && source.charAt(from) != '\n') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Returns the offset of the first non-whitespace character in the given
+     * range, or the end offset if the range is blank.
+     *
+     * @param source The source.
+     * @param start The start offset, inclusive.
+     * @param end The end offset, exclusive.
+     * @return The trimmed start offset.
+     */
+    static int trimStart(ConfParseSource source, int start, int end) {
+        while (start < end && source.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Returns the offset after the last non-whitespace character in the given
+     * range, or the start offset if the range is blank.
+     *
+     * @param source The source.
+     * @param start The start offset, inclusive.
+     * @param end The end offset, exclusive.
+     * @return The trimmed end offset.
+     */
+    static int trimEnd(ConfParseSource source, int start, int end) {
+        while (end > start && source.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Returns whether the given trimmed line is a header line.
+     *
+     * @param source The source.
+     * @param start The trimmed start offset of the line, inclusive.
+     * @param end The trimmed end offset of the line, exclusive.
+     * @return True if the line is a header line.
+     */
+    static boolean isHeader(ConfParseSource source, int start, int end) {
+        return start < end && source.charAt(start) != '#' && source.charAt(end - 1) == ':';
+    }
+
+    /**
+     * Returns the start offset of the next header line at or after the given
+     * offset, or the length of the source if there is none. The given offset
+     * has to be the start of a line.
+     *
+     * @param source The source.
+     * @param from The offset to start at.
+     * @return The end offset of the section starting at the given offset.
+     */
+    static int sectionEnd(ConfParseSource source, int from) {
+        int length = source.length();
+
+        while (from < length) {
+            int end = lineEnd(source, from);
+            int trimmedStart = trimStart(source, from, end);
+            if (isHeader(source, trimmedStart, trimEnd(source, trimmedStart, end))) {
+                return from;
+            }
+            from = end + 1;
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the given range.
+     *
+     * @param source The source.
+     * @param start The start offset, inclusive.
+     * @param end The end offset, exclusive.
+     * @return The hash of the range.
+     */
+    static long hash(ConfParseSource source, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash ^= source.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Splits the given range into tokens separated by runs of spaces and tabs.
+     *
+     * @param source The source.
+     * @param start The start offset of the line, inclusive.
+     * @param end The end offset of the line, exclusive.
+     * @return The number of tokens found.
+     */
+    int tokenize(ConfParseSource source, int start, int end) {
+        count = 0;
+
+        int i = start;
+        while (i < end) {
+            // Skip Separators
+            char c = source.charAt(i);
+            if (c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+
+            int tokenStart = i;
+            while (i < end && (c = source.charAt(i)) != ' ' && c != '\t') {
+                i++;
+            }
+
+            if (count * 2 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+
+            offsets[count * 2] = tokenStart;
+            offsets[count * 2 + 1] = i;
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the start offset of the given token.
+     *
+     * @param token The index of the token.
+     * @return The start offset of the token, inclusive.
+     */
+    int start(int token) {
+        return offsets[token * 2];
+    }
+
+    /**
+     * Returns the end offset of the given token.
+     *
+     * @param token The index of the token.
+     * @return The end offset of the token, exclusive.
+     */
+    int end(int token) {
+        return offsets[token * 2 + 1];
+    }
+}
@@ -0,0 +1,365 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+
+/**
+ * Keeps a ConfParse config up to date with its config file or URL.
+ *
+ * A file is watched with a {@link WatchService}. Once changes to it have
+ * settled for the debounce period, it is parsed again in the background with
+ * the defaults of the builder applied, and the new headers are atomically
+ * published into the config returned by {@link #getConfig()}. A URL is polled
+ * with conditional requests instead and only parsed again if it changed.
+ * Readers never block and always see either the old or the new config. A
+ * config which fails to load is not published, and watching goes on.
+ *
+ * @author Aayush Atharva
+ */
+public final class ConfParseWatcher implements Closeable {
+
+    /**
+     * The builder the config is rebuilt with.
+     */
+    private final ConfParse.ConfParser ConfParseBuilder;
+
+    /**
+     * The watched config file, or null if a URL is polled.
+     */
+    private final File file;
+
+    /**
+     * The polled config URL, or null if a file is watched.
+     */
+    private final URL URL;
+
+    /**
+     * The config which is kept up to date.
+     */
+    private final ConfParseConfig config;
+
+    /**
+     * The time changes of the file have to settle before it is parsed again,
+     * or the time between two polls of the URL.
+     */
+    private final long delayMillis;
+
+    /**
+     * The watch service of the directory of the config file, or null if a URL
+     * is polled.
+     */
+    private final WatchService watchService;
+
+    /**
+     * The background thread which waits for changes.
+     */
+    private final Thread thread;
+
+    /**
+     * The error of the last failed reload, or null if it succeeded.
+     */
+    private volatile ConfParseException lastError;
+
+    /**
+     * The names of the headers which changed with the last reload.
+     */
+    private volatile Set<String> changedHeaders = Collections.emptySet();
+
+    /**
+     * Builds the config from the given builder and starts watching its file.
+     *
+     * @param ConfParseBuilder The builder instance.
+     * @param file The config file.
+     * @param debounceMillis The time changes have to settle before the file is
+     * parsed again, in milliseconds.
+     * @throws ConfParseException If the config could not be built or watched.
+     */
+    ConfParseWatcher(ConfParse.ConfParser ConfParseBuilder, File file, long debounceMillis) throws ConfParseException {
+        this.ConfParseBuilder = ConfParseBuilder;
+        this.file = file.getAbsoluteFile();
+        this.URL = null;
+        this.delayMillis = debounceMillis;
+
+        // Watch Before The First Build So No Change Is Missed
+        Path directory = this.file.toPath().getParent();
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new ConfParseLoadConfigException("Could not watch config file '" + file.getName() + "'");
+        }
+
+        try {
+            this.config = ConfParseBuilder.BuildFromFile();
+            config.setWatched();
+        } catch (ConfParseException | RuntimeException e) {
+            try {
+                watchService.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+
+        thread = new Thread(this::watch, "ConfParse-Watcher-" + file.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Builds the config from the given builder and starts polling its URL.
+     *
+     * @param ConfParseBuilder The builder instance.
+     * @param URL The config URL.
+     * @param intervalMillis The time between two polls, in milliseconds.
+     * @throws ConfParseException If the config could not be built.
+     */
+    ConfParseWatcher(ConfParse.ConfParser ConfParseBuilder, URL URL, long intervalMillis) throws ConfParseException {
+        this.ConfParseBuilder = ConfParseBuilder;
+        this.file = null;
+        this.URL = URL;
+        this.delayMillis = intervalMillis;
+        this.config = ConfParseBuilder.BuildFromURL();
+        config.setWatched();
+        this.watchService = null;
+
+        thread = new Thread(this::poll, "ConfParse-Poller-" + URL.getHost());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the config which is kept up to date.
+     *
+     * @return The config.
+     */
+    public ConfParseConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the error of the last reload.
+     *
+     * @return The error of the last reload, or null if it succeeded.
+     */
+    public ConfParseException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Returns the names of the headers which changed with the last successful
+     * reload.
+     *
+     * @return The names of the changed headers.
+     */
+    public Set<String> getChangedHeaders() {
+        return changedHeaders;
+    }
+
+    /**
+     * Parses the config file or URL again and publishes the result.
+     *
+     * In incremental mode only the headers whose section of the file changed
+     * are parsed again and reported. Otherwise all headers of the old and the
+     * new config are reported. If the URL answers that its data has not
+     * changed, nothing is parsed and no headers are reported.
+     *
+     * @return The names of the changed headers.
+     * @throws ConfParseException If the config could not be built. The current
+     * config stays in place. Unexpected runtime errors are thrown as a
+     * {@link ConfParseLoadConfigException} with the error as its cause.
+     * @see ConfParse.ConfParser#incremental(boolean)
+     */
+    public synchronized Set<String> reload() throws ConfParseException {
+        long start = System.nanoTime();
+
+        Set<String> changed;
+        try {
+            changed = rebuild();
+        } catch (ConfParseException e) {
+            reloaded(0, e, start);
+            throw e;
+        } catch (RuntimeException e) {
+            ConfParseException error = failed(e);
+            reloaded(0, error, start);
+            throw error;
+        }
+
+        reloaded(changed.size(), null, start);
+        return changed;
+    }
+
+    /**
+     * Builds the config again and publishes it if it changed.
+     *
+     * @return The names of the changed headers.
+     * @throws ConfParseException If the config could not be built.
+     */
+    private Set<String> rebuild() throws ConfParseException {
+        ConfParseFetcher.Response response = null;
+        ConfParseConfig fresh;
+
+        if (file != null) {
+            fresh = ConfParseBuilder.BuildFromFile(config);
+        } else {
+            response = ConfParseBuilder.getFetcher().open(true);
+            fresh = response == null ? null : ConfParseBuilder.BuildFromURL(response);
+        }
+
+        if (fresh == null) {
+            changedHeaders = Collections.emptySet();
+            return changedHeaders;
+        }
+
+        Set<String> changed = fresh.changedHeaders(config);
+
+        config.publish(fresh);
+        changedHeaders = changed;
+
+        // Only Skip Unchanged Data Once The Config Built From It Is Published
+        if (response != null) {
+            response.commit();
+        }
+        return changed;
+    }
+
+    /**
+     * Wraps an unexpected error of a reload.
+     *
+     * @param e The error.
+     * @return The error of the reload, with the given error as its cause.
+     */
+    private ConfParseException failed(RuntimeException e) {
+        ConfParseException error = new ConfParseLoadConfigException("Could not reload config '" + (file != null ? file.getPath() : URL.toString()) + "'");
+        error.initCause(e);
+        return error;
+    }
+
+    /**
+     * Reports a finished reload to the metrics of the builder.
+     *
+     * @param changed The number of changed headers.
+     * @param error The error of the reload, or null.
+     * @param start The start time of the reload.
+     */
+    private void reloaded(int changed, ConfParseException error, long start) {
+        ConfParseMetrics metrics = ConfParseBuilder.getMetrics();
+        if (metrics != null) {
+            metrics.reloaded(file != null ? file.getPath() : URL.toString(), changed, error, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stops watching the config file.
+     *
+     * @throws IOException If the watch service could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Waits for changes of the config file and reloads it once they have
+     * settled.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                boolean changed = poll(watchService.take());
+
+                // Wait Until No More Changes Arrive For The Debounce Period
+                WatchKey key;
+                while ((key = watchService.poll(delayMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= poll(key);
+                }
+
+                if (changed) {
+                    tryReload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher Closed
+        }
+    }
+
+    /**
+     * Polls the config URL until this watcher is closed.
+     */
+    private void poll() {
+        try {
+            while (true) {
+                Thread.sleep(delayMillis);
+                tryReload();
+            }
+        } catch (InterruptedException e) {
+            // Watcher Closed
+        }
+    }
+
+    /**
+     * Reloads the config and remembers the error if it fails. No error stops
+     * the background thread.
+     */
+    private void tryReload() {
+        try {
+            reload();
+            lastError = null;
+        } catch (ConfParseException e) {
+            lastError = e;
+        } catch (RuntimeException e) {
+            lastError = failed(e); // Thrown By The Metrics
+        }
+    }
+
+    /**
+     * Consumes the events of the given key.
+     *
+     * @param key The signalled watch key.
+     * @return True if one of the events concerns the config file.
+     */
+    private boolean poll(WatchKey key) {
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getName().equals(String.valueOf(event.context()))) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,453 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.bind;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.aayushatharva.confparse.ConfParse;
+import com.aayushatharva.confparse.ConfParseConfig;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+
+/**
+ * Binds a header to an object whose fields are mapped to the keys of the
+ * header.
+ *
+ * The mapping of a class is resolved once when the binder is created. Every
+ * field is set through a method handle, so binding a header only looks up
+ * its keys and converts their values. Once bound, the values are read from
+ * plain fields.
+ *
+ * Fields may be of type {@code String}, {@code int}, {@code long},
+ * {@code double}, {@code float} and {@code boolean} or their wrappers, which
+ * take a single value of the key, or of type {@code String[]}, {@code int[]},
+ * {@code long[]}, {@code double[]} and {@code List<String>}, which take all
+ * values of the key. Fields of type {@link Key} and {@link Value} are set to
+ * the key and its value themselves. Static and transient fields are skipped.
+ * Fields may be final, unless they are initialized with a constant, which
+ * the compiler inlines.
+ *
+ * <pre>
+ * class Server {
+ *     String host;
+ *     int port;
+ *     &#64;ConfParseKey(value = "backends") String[] backendHosts;
+ *     &#64;ConfParseKey(optional = true) int threads = 4;
+ * }
+ *
+ * Server server = ConfParseBinder.of(Server.class).bind(config, "Server");
+ * </pre>
+ *
+ * Keys which are missing from the config are looked up in the defaults of a
+ * builder if the binder was created with {@link #withDefaults(ConfParse.ConfParser)}.
+ *
+ * @param <T> The type of the bound objects.
+ * @author Aayush Atharva
+ */
+public final class ConfParseBinder<T> {
+
+    /**
+     * The bound class.
+     */
+    private final Class<T> type;
+
+    /**
+     * The no-argument constructor of the bound class.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * The bindings of the fields.
+     */
+    private final Binding[] bindings;
+
+    /**
+     * Frozen copies of the default headers used for missing keys by their
+     * names.
+     */
+    private final Map<String, Header> defaults;
+
+    /**
+     * Resolves the mapping of the given class.
+     *
+     * @param type The class.
+     */
+    private ConfParseBinder(Class<T> type) {
+        this.type = type;
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<T> noArgs = type.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+            constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException(type.getName() + " has no accessible no-argument constructor", e);
+        }
+
+        List<Binding> fields = new ArrayList<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0 && !field.isSynthetic()) {
+                    fields.add(new Binding(lookup, field));
+                }
+            }
+        }
+        bindings = fields.toArray(new Binding[0]);
+        defaults = Collections.emptyMap();
+    }
+
+    /**
+     * Creates a binder with the mapping of the given binder and the given
+     * defaults.
+     *
+     * @param binder The binder.
+     * @param defaults The default headers used for missing keys.
+     */
+    private ConfParseBinder(ConfParseBinder<T> binder, Map<String, Header> defaults) {
+        this.type = binder.type;
+        this.constructor = binder.constructor;
+        this.bindings = binder.bindings;
+        this.defaults = defaults;
+    }
+
+    /**
+     * Returns a binder for the given class. The class needs a no-argument
+     * constructor, which may be private.
+     *
+     * @param <T> The type of the bound objects.
+     * @param type The class.
+     * @return The binder.
+     * @throws IllegalArgumentException If the class has no no-argument
+     * constructor or a field of an unsupported type.
+     */
+    public static <T> ConfParseBinder<T> of(Class<T> type) {
+        return new ConfParseBinder<>(type);
+    }
+
+    /**
+     * Returns a binder with the same mapping which looks up keys missing from
+     * the bound header in the defaults added with {@code def(...)} to the given
+     * builder. The defaults are copied once, so defaults added to the builder
+     * later are not seen.
+     *
+     * @param defaults The builder.
+     * @return The binder.
+     */
+    public ConfParseBinder<T> withDefaults(ConfParse.ConfParser defaults) {
+        Map<String, Header> headers = new HashMap<>();
+        for (Header header : defaults.getHeaders()) {
+            headers.put(header.getName(), header.freeze());
+        }
+        return new ConfParseBinder<>(this, headers);
+    }
+
+    /**
+     * Binds the given header of the given config to a new object. If the
+     * config has no such header, the default header is bound.
+     *
+     * @param config The config.
+     * @param header The name of the header.
+     * @return The bound object.
+     * @throws ConfParseException If the header or a required key is missing,
+     * or a value cannot be converted.
+     */
+    public T bind(ConfParseConfig config, String header) throws ConfParseException {
+        Header h = config.getHeader(header);
+        if (h == null) {
+            h = defaults.get(header);
+        }
+        if (h == null) {
+            throw new ConfParseInvalidConfigException("Header " + header + " is missing");
+        }
+        return bind(h);
+    }
+
+    /**
+     * Binds the given header to a new object. Keys missing from the header
+     * are looked up in the defaults of this binder, and fail the bind unless
+     * their field is optional. All missing keys are reported at once.
+     *
+     * @param header The header.
+     * @return The bound object.
+     * @throws ConfParseException If a required key is missing or a value
+     * cannot be converted.
+     */
+    public T bind(Header header) throws ConfParseException {
+        Object object;
+        try {
+            object = constructor.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not create " + type.getName(), t);
+        }
+
+        Header fallback = defaults.get(header.getName());
+        List<String> missing = null;
+        for (Binding binding : bindings) {
+            Key key = header.getKey(binding.key);
+            if (!binding.accepts(key) && fallback != null) {
+                key = fallback.getKey(binding.key);
+            }
+            if (!binding.accepts(key)) {
+                if (!binding.optional) {
+                    if (missing == null) {
+                        missing = new ArrayList<>();
+                    }
+                    if (!missing.contains(binding.key)) {
+                        missing.add(binding.key);
+                    }
+                }
+                continue;
+            }
+
+            Object value;
+            try {
+                value = binding.kind.convert(key, binding.index);
+            } catch (NumberFormatException e) {
+                ConfParseInvalidConfigException error = new ConfParseInvalidConfigException("Key " + binding.key + " of header " + header.getName() + " is not of type " + binding.typeName);
+                error.initCause(e);
+                throw error;
+            }
+
+            try {
+                binding.setter.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Could not set " + binding.key + " of " + type.getName(), t);
+            }
+        }
+
+        if (missing != null) {
+            throw new ConfParseInvalidConfigException("Header " + header.getName() + " is missing " + String.join(", ", missing));
+        }
+
+        return type.cast(object);
+    }
+
+    /**
+     * The conversions of the supported field types.
+     */
+    private enum Kind {
+
+        STRING(false) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.getValue(index).asString();
+            }
+        },
+        INT(false) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.getValue(index).asInt();
+            }
+        },
+        LONG(false) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.getValue(index).asLong();
+            }
+        },
+        DOUBLE(false) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.getValue(index).asDouble();
+            }
+        },
+        FLOAT(false) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.getValue(index).asFloat();
+            }
+        },
+        BOOLEAN(false) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.getValue(index).asBoolean();
+            }
+        },
+        VALUE(false) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.getValue(index);
+            }
+        },
+        KEY(true) {
+            @Override
+            Object convert(Key key, int index) {
+                return key;
+            }
+        },
+        STRING_ARRAY(true) {
+            @Override
+            Object convert(Key key, int index) {
+                String[] values = new String[key.getValues().size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = key.getValue(i).asString();
+                }
+                return values;
+            }
+        },
+        STRING_LIST(true) {
+            @Override
+            Object convert(Key key, int index) {
+                return Collections.unmodifiableList(Arrays.asList((String[]) STRING_ARRAY.convert(key, index)));
+            }
+        },
+        INT_ARRAY(true) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.asIntArray();
+            }
+        },
+        LONG_ARRAY(true) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.asLongArray();
+            }
+        },
+        DOUBLE_ARRAY(true) {
+            @Override
+            Object convert(Key key, int index) {
+                return key.asDoubleArray();
+            }
+        };
+
+        /**
+         * Whether the field takes all values of the key.
+         */
+        private final boolean allValues;
+
+        Kind(boolean allValues) {
+            this.allValues = allValues;
+        }
+
+        /**
+         * Converts the value at the given index, or all values, of the given
+         * key.
+         *
+         * @param key The key.
+         * @param index The index of the value.
+         * @return The converted value.
+         */
+        abstract Object convert(Key key, int index);
+
+        /**
+         * Returns the conversion for the given field.
+         *
+         * @param field The field.
+         * @return The conversion, or null if the type is not supported.
+         */
+        private static Kind of(Field field) {
+            Class<?> type = field.getType();
+            if (type == String.class) {
+                return STRING;
+            } else if (type == int.class || type == Integer.class) {
+                return INT;
+            } else if (type == long.class || type == Long.class) {
+                return LONG;
+            } else if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            } else if (type == float.class || type == Float.class) {
+                return FLOAT;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            } else if (type == Value.class) {
+                return VALUE;
+            } else if (type == Key.class) {
+                return KEY;
+            } else if (type == String[].class) {
+                return STRING_ARRAY;
+            } else if (type == int[].class) {
+                return INT_ARRAY;
+            } else if (type == long[].class) {
+                return LONG_ARRAY;
+            } else if (type == double[].class) {
+                return DOUBLE_ARRAY;
+            } else if (type == List.class && field.getGenericType() instanceof ParameterizedType
+                    && ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0] == String.class) {
+                return STRING_LIST;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The resolved mapping of a field.
+     */
+    private static final class Binding {
+
+        private final String key;
+
+        private final int index;
+
+        private final boolean optional;
+
+        private final Kind kind;
+
+        private final String typeName;
+
+        /**
+         * The setter of the field, taking the object and the boxed value.
+         */
+        private final MethodHandle setter;
+
+        private Binding(MethodHandles.Lookup lookup, Field field) {
+            ConfParseKey annotation = field.getAnnotation(ConfParseKey.class);
+            this.key = annotation == null || annotation.value().isEmpty() ? field.getName() : annotation.value();
+            this.index = annotation == null ? 0 : annotation.index();
+            this.optional = annotation != null && annotation.optional();
+            this.kind = Kind.of(field);
+            this.typeName = field.getType().getSimpleName();
+
+            if (kind == null) {
+                throw new IllegalArgumentException("Field " + field.getName() + " of " + field.getDeclaringClass().getName() + " has unsupported type " + field.getGenericType().getTypeName());
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("Field " + field.getName() + " of " + field.getDeclaringClass().getName() + " has a negative index");
+            }
+
+            try {
+                field.setAccessible(true);
+                this.setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException | RuntimeException e) {
+                throw new IllegalArgumentException("Field " + field.getName() + " of " + field.getDeclaringClass().getName() + " cannot be set", e);
+            }
+        }
+
+        /**
+         * Returns whether the given key has the values this field takes.
+         *
+         * @param key The key, or null.
+         * @return True if the field can be bound from the key.
+         */
+        private boolean accepts(Key key) {
+            return key != null && (kind.allValues || index < key.getValueCount());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.bind;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a field to a key of a header. Fields without this annotation are
+ * mapped to the key of the same name and the first value of that key.
+ *
+ * @author Aayush Atharva
+ * @see ConfParseBinder
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ConfParseKey {
+
+    /**
+     * Returns the name of the key, or an empty string for the name of the
+     * field.
+     *
+     * @return The name of the key.
+     */
+    String value() default "";
+
+    /**
+     * Returns the position of the value the field is set to. Not used for
+     * fields which take all values of the key.
+     *
+     * @return The position of the value.
+     */
+    int index() default 0;
+
+    /**
+     * Returns whether the key may be missing. The field then keeps the value
+     * it was initialized with.
+     *
+     * @return True if the key may be missing.
+     */
+    boolean optional() default false;
+}
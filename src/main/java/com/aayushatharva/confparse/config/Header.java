@@ -1,108 +1,201 @@
-/* 
- * Copyright (C) 2018 Aayush Atharva
- *
- * This program is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with this program.  If not, see <http://www.gnu.org/licenses/>.
- */
-package com.aayushatharva.confparse.config;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-/**
- *
- * @author Aayush Atharva
- */
-public class Header {
-
-    /**
-     * The HeaderName of the header.
-     */
-    private String HeaderName;
-
-    /**
-     * The keys of the header.
-     */
-    private Map<String, Key> HeaderKeys = new HashMap<>();
-
-    /**
-     * Creates a new header with the given HeaderName.
-     *
-     * @param headerName The HeaderName of the header.
-     */
-    public Header(String headerName) {
-        this.HeaderName = headerName;
-    }
-
-    /**
-     * Adds a key to this header.
-     *
-     * @param key The key.
-     */
-    public void addKey(Key key) {
-        HeaderKeys.put(key.getName(), key);
-    }
-
-    /**
-     * Returns whether the given key exists.
-     *
-     * @param key The key to check.
-     * @return True or false whether the given check exists or not.
-     */
-    public boolean hasKey(String key) {
-        return HeaderKeys.containsKey(key);
-    }
-
-    /**
-     * Returns the key with the given HeaderName.
-     *
-     * @param key The HeaderName of the key.
-     * @return The key object.
-     */
-    public Key getKey(String key) {
-        return HeaderKeys.get(key);
-    }
-
-
-    /**
-     * Returns the HeaderName of the key.
-     *
-     * @return The HeaderName of the key.
-     */
-    public String getName() {
-        return HeaderName;
-    }
-
-    /**
-     * Returns the keys as an unmodifiable list.
-     *
-     * @return The keys as an unmodifiable list.
-     */
-    public List<Key> getKeys() {
-        return Collections.unmodifiableList(new ArrayList<>(HeaderKeys.values()));
-    }
-    
-    public List<Key> getKeysList() {
-
-        for (Key k : HeaderKeys.values()) {
-            System.out.println(k.getName());
-        }
-   
-        return new ArrayList<>(HeaderKeys.values());
-    }
-    
-   
-}
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author Aayush Atharva
+ */
+public class Header {
+
+    /**
+     * The HeaderName of the header.
+     */
+    private final String HeaderName;
+
+    /**
+     * The keys of the header, or null if this header is frozen.
+     */
+    private final Map<String, Key> HeaderKeys;
+
+    /**
+     * The keys as an unmodifiable list if this header is frozen, otherwise
+     * null.
+     */
+    private final List<Key> FrozenKeys;
+
+    /**
+     * The keys by their names if this header is frozen, otherwise null.
+     */
+    private final NameIndex<Key> KeyIndex;
+
+    /**
+     * Creates a new header with the given HeaderName.
+     *
+     * @param headerName The HeaderName of the header.
+     */
+    public Header(String headerName) {
+        this.HeaderName = headerName;
+        this.HeaderKeys = new HashMap<>();
+        this.FrozenKeys = null;
+        this.KeyIndex = null;
+    }
+
+    /**
+     * Creates a new frozen header with the given HeaderName and keys. The keys
+     * are indexed in a {@link NameIndex}.
+     * Also used by headers which only parse their keys when they are first
+     * read and pass no keys here.
+     *
+     * @param headerName The HeaderName of the header.
+     * @param keys The frozen keys of the header.
+     */
+    protected Header(String headerName, Key[] keys) {
+        this.HeaderName = headerName;
+        this.HeaderKeys = null;
+        this.FrozenKeys = Collections.unmodifiableList(Arrays.asList(keys));
+
+        this.KeyIndex = new NameIndex<>(keys.length, 1);
+        for (Key key : keys) {
+            KeyIndex.put(key.getName(), key);
+        }
+    }
+
+    /**
+     * Adds a key to this header.
+     *
+     * @param key The key.
+     * @throws UnsupportedOperationException If this header is frozen.
+     */
+    public void addKey(Key key) {
+        if (FrozenKeys != null) {
+            throw new UnsupportedOperationException("Header " + HeaderName + " is frozen");
+        }
+
+        HeaderKeys.put(key.getName(), key);
+    }
+
+    /**
+     * Returns a frozen copy of this header with all keys frozen as well. A
+     * frozen header can no longer be modified and can be shared between
+     * threads without synchronization. Its keys list is built once, so
+     * {@link #getKeys()} no longer allocates.
+     *
+     * @return A frozen copy of this header, or this header if it is already
+     * frozen.
+     */
+    public Header freeze() {
+        if (FrozenKeys != null) {
+            return this;
+        }
+
+        Key[] keys = new Key[HeaderKeys.size()];
+        int i = 0;
+        for (Key key : HeaderKeys.values()) {
+            keys[i++] = key.freeze();
+        }
+
+        return new Header(HeaderName, keys);
+    }
+
+    /**
+     * Returns whether this header is frozen.
+     *
+     * @return True if this header is frozen.
+     */
+    public boolean isFrozen() {
+        return FrozenKeys != null;
+    }
+
+    /**
+     * Returns whether the given key exists.
+     *
+     * @param key The key to check.
+     * @return True or false whether the given check exists or not.
+     */
+    public boolean hasKey(String key) {
+        if (FrozenKeys != null) {
+            return getKey(key) != null;
+        }
+
+        return HeaderKeys.containsKey(key);
+    }
+
+    /**
+     * Returns the key with the given HeaderName.
+     *
+     * @param key The HeaderName of the key.
+     * @return The key object.
+     */
+    public Key getKey(String key) {
+        if (FrozenKeys != null) {
+            return KeyIndex.get(key);
+        }
+
+        return HeaderKeys.get(key);
+    }
+
+
+    /**
+     * Returns the HeaderName of the key.
+     *
+     * @return The HeaderName of the key.
+     */
+    public String getName() {
+        return HeaderName;
+    }
+
+    /**
+     * Returns the number of keys of the header.
+     *
+     * @return The number of keys.
+     */
+    public int getKeyCount() {
+        return FrozenKeys != null ? FrozenKeys.size() : HeaderKeys.size();
+    }
+
+    /**
+     * Returns the keys as an unmodifiable list.
+     *
+     * @return The keys as an unmodifiable list.
+     */
+    public List<Key> getKeys() {
+        if (FrozenKeys != null) {
+            return FrozenKeys;
+        }
+
+        return Collections.unmodifiableList(new ArrayList<>(HeaderKeys.values()));
+    }
+    
+    public List<Key> getKeysList() {
+
+        for (Key k : getKeys()) {
+            System.out.println(k.getName());
+        }
+   
+        return new ArrayList<>(getKeys());
+    }
+    
+   
+}
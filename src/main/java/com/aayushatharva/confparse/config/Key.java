@@ -1,168 +1,464 @@
-/* 
- * Copyright (C) 2018 Aayush Atharva
- *
- * This program is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with this program.  If not, see <http://www.gnu.org/licenses/>.
- */
-package com.aayushatharva.confparse.config;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
-/**
- *
- * @author Aayush Atharva
- */
-public class Key {
-
-    /**
-     * The KeyName of the key.
-     */
-    private String KeyName;
-
-    /**
-     * The value of the key.
-     */
-    private List<Value> KeyValues = new ArrayList<>();
-
-    /**
-     * The current index for the next method.
-     */
-    private int index = -1;
-
-    /**
-     * Creates a new key with the given KeyName.
-     *
-     * @param keyName The KeyName of the key.
-     */
-    public Key(String keyName) {
-        this.KeyName = keyName;
-    }
-
-    /**
-     * Adds a value to this key.
-     *
-     * @param value The value.
-     */
-    public void addValue(Value value) {
-        KeyValues.add(value);
-    }
-  
-    /**
-     * Returns the KeyName of the key.
-     *
-     * @return The KeyName of the key.
-     */
-    public String getName() {
-        return KeyName;
-    }
-
-    /**
-     * Returns the value at the given index.
-     *
-     * @param index The index of the value.
-     * @return The value at the index.
-     */
-    public Value getValue(int index) {
-        return KeyValues.get(index);
-    }
-
-    /**
-     * Returns whether this key has KeyValues.
-     *
-     * @return True whether this key has KeyValues.
-     */
-    public boolean hasValues() {
-        return !KeyValues.isEmpty();
-    }
-
-    /**
-     * Returns the next value from this key. If the maximum index is reached, it
-     * will start at 0 (the first value) again.
-     *
-     * @return The next value of this key from the current index.
-     */
-    public Value next() {
-        index++;
-
-        if (index == KeyValues.size()) {
-            index = 0;
-        }
-
-        return KeyValues.get(index);
-    }
-
-    /**
-     * Gets the next value and returns it as a string.
-     *
-     * @return The value as a string.
-     */
-    public String nextString() {
-        return next().asString();
-    }
-
-    /**
-     * Gets the next value and returns it as an integer.
-     *
-     * @return The value as an integer.
-     */
-    public int nextInt() {
-        return next().asInt();
-    }
-
-    /**
-     * Gets the next value and returns it as a long.
-     *
-     * @return The value as a long.
-     */
-    public long nextLong() {
-        return next().asLong();
-    }
-
-    /**
-     * Gets the next value and returns it as a double.
-     *
-     * @return The value as a double.
-     */
-    public double nextDouble() {
-        return next().asDouble();
-    }
-
-    /**
-     * Gets the next value and returns it as a float.
-     *
-     * @return The value as a float.
-     */
-    public float nextFloat() {
-        return next().asFloat();
-    }
-
-    /**
-     * Gets the next value and returns it as a boolean.
-     *
-     * @return The value as a boolean.
-     */
-    public boolean nextBoolean() {
-        return next().asBoolean();
-    }
-
-    /**
-     * Returns the KeyValues as an unmodifiable list.
-     *
-     * @return The KeyValues as an unmodifiable list.
-     */
-    public List<Value> getValues() {
-        return Collections.unmodifiableList(KeyValues);
-    }
-}
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ *
+ * @author Aayush Atharva
+ */
+public class Key {
+
+    /**
+     * The KeyName of the key.
+     */
+    private final String KeyName;
+
+    /**
+     * The value of the key.
+     */
+    private final List<Value> KeyValues;
+
+    /**
+     * The unmodifiable view of the KeyValues.
+     */
+    private final List<Value> ValuesView;
+
+    /**
+     * Whether this key is frozen and can no longer be modified.
+     */
+    private final boolean Frozen;
+
+    /**
+     * Atomically increments the shared cursor.
+     */
+    private static final AtomicIntegerFieldUpdater<Key> CURSOR = AtomicIntegerFieldUpdater.newUpdater(Key.class, "cursor");
+
+    /**
+     * The shared cursor for the next method. It only ever increases and is
+     * mapped onto the values modulo their count.
+     */
+    private volatile int cursor;
+
+    /**
+     * The values converted to integers, or null until they are needed.
+     */
+    private volatile int[] IntValues;
+
+    /**
+     * The values converted to longs, or null until they are needed.
+     */
+    private volatile long[] LongValues;
+
+    /**
+     * The values converted to doubles, or null until they are needed.
+     */
+    private volatile double[] DoubleValues;
+
+    /**
+     * Creates a new key with the given KeyName.
+     *
+     * @param keyName The KeyName of the key.
+     */
+    public Key(String keyName) {
+        this.KeyName = keyName;
+        this.KeyValues = new ArrayList<>();
+        this.ValuesView = Collections.unmodifiableList(KeyValues);
+        this.Frozen = false;
+    }
+
+    /**
+     * Creates a new frozen key with the given KeyName and values.
+     *
+     * @param keyName The KeyName of the key.
+     * @param values The values of the key.
+     */
+    private Key(String keyName, Value[] values) {
+        this.KeyName = keyName;
+        this.KeyValues = Arrays.asList(values);
+        this.ValuesView = Collections.unmodifiableList(KeyValues);
+        this.Frozen = true;
+    }
+
+    /**
+     * Creates a new frozen key with the given KeyName which reads its values
+     * through the given list. Used for keys whose values are only created
+     * when they are first read.
+     *
+     * @param keyName The KeyName of the key.
+     * @param values The values of the key.
+     */
+    protected Key(String keyName, List<Value> values) {
+        this.KeyName = keyName;
+        this.KeyValues = values;
+        this.ValuesView = Collections.unmodifiableList(KeyValues);
+        this.Frozen = true;
+    }
+
+    /**
+     * Adds a value to this key.
+     *
+     * @param value The value.
+     * @throws UnsupportedOperationException If this key is frozen.
+     */
+    public void addValue(Value value) {
+        if (Frozen) {
+            throw new UnsupportedOperationException("Key " + KeyName + " is frozen");
+        }
+
+        KeyValues.add(value);
+
+        // Converted Values Are Stale Now
+        IntValues = null;
+        LongValues = null;
+        DoubleValues = null;
+    }
+
+    /**
+     * Returns a frozen copy of this key. The values of a frozen key are held
+     * in a packed array and can no longer be modified, so a frozen key can be
+     * shared between threads without synchronization.
+     *
+     * @return A frozen copy of this key, or this key if it is already frozen.
+     */
+    public Key freeze() {
+        if (Frozen) {
+            return this;
+        }
+
+        return new Key(KeyName, KeyValues.toArray(new Value[0]));
+    }
+
+    /**
+     * Returns whether this key is frozen.
+     *
+     * @return True if this key is frozen.
+     */
+    public boolean isFrozen() {
+        return Frozen;
+    }
+  
+    /**
+     * Returns the KeyName of the key.
+     *
+     * @return The KeyName of the key.
+     */
+    public String getName() {
+        return KeyName;
+    }
+
+    /**
+     * Returns the value at the given index.
+     *
+     * @param index The index of the value.
+     * @return The value at the index.
+     */
+    public Value getValue(int index) {
+        return KeyValues.get(index);
+    }
+
+    /**
+     * Returns whether this key has KeyValues.
+     *
+     * @return True whether this key has KeyValues.
+     */
+    public boolean hasValues() {
+        return !KeyValues.isEmpty();
+    }
+
+    /**
+     * Returns a new cursor which iterates the values of this key on its own.
+     *
+     * {@link #next()} shares one atomic cursor between all threads, which
+     * gives a strict round-robin over all calls. A cursor does its own
+     * round-robin without touching shared state, which scales better when
+     * many threads iterate the same key. Cursors are not thread-safe, so every
+     * thread needs its own, for example held in a {@link ThreadLocal}. Every
+     * cursor starts at a different offset taken from the shared cursor, and
+     * the key itself is not changed.
+     *
+     * @return The new cursor.
+     */
+    public Cursor newCursor() {
+        return new Cursor(this, CURSOR.getAndIncrement(this));
+    }
+
+    /**
+     * Returns the next value from this key. If the maximum index is reached, it
+     * will start at 0 (the first value) again.
+     *
+     * This method is lock-free and can be called from multiple threads.
+     *
+     * @return The next value of this key from the current index.
+     * @throws IndexOutOfBoundsException If this key has no values.
+     */
+    public Value next() {
+        int size = KeyValues.size();
+
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("Key " + KeyName + " has no values");
+        }
+
+        return KeyValues.get(Math.floorMod(CURSOR.getAndIncrement(this), size));
+    }
+
+    /**
+     * Gets the next value and returns it as a string.
+     *
+     * @return The value as a string.
+     */
+    public String nextString() {
+        return next().asString();
+    }
+
+    /**
+     * Gets the next value and returns it as an integer.
+     *
+     * @return The value as an integer.
+     */
+    public int nextInt() {
+        return next().asInt();
+    }
+
+    /**
+     * Gets the next value and returns it as a long.
+     *
+     * @return The value as a long.
+     */
+    public long nextLong() {
+        return next().asLong();
+    }
+
+    /**
+     * Gets the next value and returns it as a double.
+     *
+     * @return The value as a double.
+     */
+    public double nextDouble() {
+        return next().asDouble();
+    }
+
+    /**
+     * Gets the next value and returns it as a float.
+     *
+     * @return The value as a float.
+     */
+    public float nextFloat() {
+        return next().asFloat();
+    }
+
+    /**
+     * Gets the next value and returns it as a boolean.
+     *
+     * @return The value as a boolean.
+     */
+    public boolean nextBoolean() {
+        return next().asBoolean();
+    }
+
+    /**
+     * Returns the number of values of this key.
+     *
+     * @return The number of values.
+     */
+    public int getValueCount() {
+        return KeyValues.size();
+    }
+
+    /**
+     * Returns the value at the given index as an integer. All values are
+     * converted once into a flat array which is read directly afterwards, so
+     * this does not allocate.
+     *
+     * @param index The index of the value.
+     * @return The value as an integer.
+     * @throws NumberFormatException If a value is not an integer.
+     */
+    public int getInt(int index) {
+        return ints()[index];
+    }
+
+    /**
+     * Returns the value at the given index as a long. All values are
+     * converted once into a flat array which is read directly afterwards, so
+     * this does not allocate.
+     *
+     * @param index The index of the value.
+     * @return The value as a long.
+     * @throws NumberFormatException If a value is not a long.
+     */
+    public long getLong(int index) {
+        return longs()[index];
+    }
+
+    /**
+     * Returns the value at the given index as a double. All values are
+     * converted once into a flat array which is read directly afterwards, so
+     * this does not allocate.
+     *
+     * @param index The index of the value.
+     * @return The value as a double.
+     * @throws NumberFormatException If a value is not a double.
+     */
+    public double getDouble(int index) {
+        return doubles()[index];
+    }
+
+    /**
+     * Returns a copy of all values as integers. Use {@link #getInt(int)} to
+     * read them without copying.
+     *
+     * @return A new array of the values as integers.
+     * @throws NumberFormatException If a value is not an integer.
+     */
+    public int[] asIntArray() {
+        return ints().clone();
+    }
+
+    /**
+     * Returns a copy of all values as longs. Use {@link #getLong(int)} to read
+     * them without copying.
+     *
+     * @return A new array of the values as longs.
+     * @throws NumberFormatException If a value is not a long.
+     */
+    public long[] asLongArray() {
+        return longs().clone();
+    }
+
+    /**
+     * Returns a copy of all values as doubles. Use {@link #getDouble(int)} to
+     * read them without copying.
+     *
+     * @return A new array of the values as doubles.
+     * @throws NumberFormatException If a value is not a double.
+     */
+    public double[] asDoubleArray() {
+        return doubles().clone();
+    }
+
+    /**
+     * Returns the values converted to integers, converting them on first use.
+     *
+     * @return The cached array.
+     */
+    private int[] ints() {
+        int[] values = IntValues;
+        if (values == null) {
+            values = new int[KeyValues.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Integer.parseInt(getText(i));
+            }
+            IntValues = values;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values converted to longs, converting them on first use.
+     *
+     * @return The cached array.
+     */
+    private long[] longs() {
+        long[] values = LongValues;
+        if (values == null) {
+            values = new long[KeyValues.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Long.parseLong(getText(i));
+            }
+            LongValues = values;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values converted to doubles, converting them on first use.
+     *
+     * @return The cached array.
+     */
+    private double[] doubles() {
+        double[] values = DoubleValues;
+        if (values == null) {
+            values = new double[KeyValues.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Double.parseDouble(getText(i));
+            }
+            DoubleValues = values;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the text of the value at the given index for the typed arrays.
+     * Keys whose values are created lazily return the text without creating
+     * the value, so the typed array is all that is kept for them.
+     *
+     * @param index The index of the value.
+     * @return The text of the value.
+     */
+    protected String getText(int index) {
+        return KeyValues.get(index).asString();
+    }
+
+    /**
+     * Returns the KeyValues as an unmodifiable list.
+     *
+     * @return The KeyValues as an unmodifiable list.
+     */
+    public List<Value> getValues() {
+        return ValuesView;
+    }
+
+    /**
+     * A round-robin cursor over the values of a key, owned by one caller.
+     *
+     * @see Key#newCursor()
+     */
+    public static final class Cursor {
+
+        private final Key key;
+
+        private int index;
+
+        private Cursor(Key key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+
+        /**
+         * Returns the next value of the key. If the last value is reached, it
+         * starts at the first value again.
+         *
+         * @return The next value of the key.
+         * @throws IndexOutOfBoundsException If the key has no values.
+         */
+        public Value next() {
+            int size = key.getValueCount();
+
+            if (size == 0) {
+                throw new IndexOutOfBoundsException("Key " + key.getName() + " has no values");
+            }
+
+            return key.getValue(Math.floorMod(index++, size));
+        }
+    }
+}
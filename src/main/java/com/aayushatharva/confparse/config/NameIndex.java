@@ -0,0 +1,178 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.config;
+
+/**
+ * An open-addressing table from names to values with linear probing, used
+ * to look up the headers and keys of frozen configs.
+ *
+ * Every slot holds the names next to the value in one flat array, and the
+ * hash codes of the names are cached in a parallel array, so names are only
+ * compared on a hash match. A value can be indexed by one name, or by two
+ * names together so that a lookup by both is a single probe. The table is
+ * filled once and never resized, so it is at most half full.
+ *
+ * @param <V> The type of the values.
+ * @author Aayush Atharva
+ */
+public final class NameIndex<V> {
+
+    /**
+     * The multiplier which maps hashes onto slots.
+     */
+    private static final int GOLDEN = 0x9e3779b9;
+
+    /**
+     * The hashes of the names of every slot.
+     */
+    private final int[] hashes;
+
+    /**
+     * The names and the value of every slot. Empty slots have no name.
+     */
+    private final Object[] slots;
+
+    /**
+     * The number of names a value is indexed by, 1 or 2.
+     */
+    private final int names;
+
+    /**
+     * The shift which maps a hash onto a slot.
+     */
+    private final int shift;
+
+    /**
+     * Creates a new empty table for the given number of values.
+     *
+     * @param size The number of values to be put.
+     * @param names The number of names every value is indexed by, 1 or 2.
+     * @throws IllegalArgumentException If the number of names is not 1 or 2.
+     */
+    public NameIndex(int size, int names) {
+        if (names != 1 && names != 2) {
+            throw new IllegalArgumentException("Values are indexed by 1 or 2 names: " + names);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        this.hashes = new int[capacity];
+        this.slots = new Object[capacity * (names + 1)];
+        this.names = names;
+        this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    /**
+     * Puts the given value under the given name. Each name is only put once.
+     *
+     * @param name The name.
+     * @param value The value.
+     */
+    public void put(String name, V value) {
+        put(name.hashCode(), name, null, value);
+    }
+
+    /**
+     * Puts the given value under the given pair of names. Each pair is only
+     * put once.
+     *
+     * @param first The first name.
+     * @param second The second name.
+     * @param value The value.
+     */
+    public void put(String first, String second, V value) {
+        put(hash(first, second), first, second, value);
+    }
+
+    /**
+     * Returns the value with the given name from a table of values indexed
+     * by one name.
+     *
+     * @param name The name.
+     * @return The value, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String name) {
+        int hash = name.hashCode();
+        int mask = hashes.length - 1;
+
+        Object slotName;
+        for (int slot = (hash * GOLDEN) >>> shift; (slotName = slots[slot * 2]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && name.equals(slotName)) {
+                return (V) slots[slot * 2 + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value with the given pair of names from a table of values
+     * indexed by two names, with a single probe.
+     *
+     * @param first The first name.
+     * @param second The second name.
+     * @return The value, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String first, String second) {
+        int hash = hash(first, second);
+        int mask = hashes.length - 1;
+
+        Object slotName;
+        for (int slot = (hash * GOLDEN) >>> shift; (slotName = slots[slot * 3]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && second.equals(slots[slot * 3 + 1]) && first.equals(slotName)) {
+                return (V) slots[slot * 3 + 2];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts the given value into the first free slot of its hash.
+     *
+     * @param hash The hash of the names.
+     * @param first The first name.
+     * @param second The second name, or null if the value has one name.
+     * @param value The value.
+     */
+    private void put(int hash, String first, String second, V value) {
+        int stride = names + 1;
+        int mask = hashes.length - 1;
+
+        int slot = (hash * GOLDEN) >>> shift;
+        while (slots[slot * stride] != null) {
+            slot = (slot + 1) & mask;
+        }
+
+        hashes[slot] = hash;
+        slots[slot * stride] = first;
+        if (second != null) {
+            slots[slot * stride + 1] = second;
+        }
+        slots[slot * stride + names] = value;
+    }
+
+    /**
+     * Returns the combined hash of the given pair of names.
+     *
+     * @param first The first name.
+     * @param second The second name.
+     * @return The combined hash.
+     */
+    private static int hash(String first, String second) {
+        return first.hashCode() * GOLDEN + second.hashCode();
+    }
+}
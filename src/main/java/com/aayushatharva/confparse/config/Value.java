@@ -1,97 +1,299 @@
-/* 
- * Copyright (C) 2018 Aayush Atharva
- *
- * This program is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with this program.  If not, see <http://www.gnu.org/licenses/>.
- */
-package com.aayushatharva.confparse.config;
-
-/**
- *
- * @author Aayush Atharva
- */
-public class Value {
-
-    /**
-     * The value of the value.
-     */
-    private String ValueName;
-
-    /**
-     * Creates a new value with the given value.
-     *
-     * @param valueName The value.
-     */
-    public Value(String valueName) {
-        this.ValueName = valueName;
-    }
-
-    /**
-     * Returns the value as a string.
-     *
-     * @return The value as a string.
-     */
-    public String asString() {
-        return ValueName;
-    }
-   
-    /**
-     * Returns the value as an int.
-     *
-     * @return The value as an int.
-     */
-    public int asInt() {
-        return Integer.parseInt(ValueName);
-    }
-
-    /**
-     * Returns the value as a long.
-     *
-     * @return The value as a long.
-     */
-    public long asLong() {
-        return Long.parseLong(ValueName);
-    }
-
-    /**
-     * Returns the value as a double.
-     *
-     * @return The value as a double.
-     */
-    public double asDouble() {
-        return Double.parseDouble(ValueName);
-    }
-
-    /**
-     * Returns the value as a float.
-     *
-     * @return The value as a float.
-     */
-    public float asFloat() {
-        return Float.parseFloat(ValueName);
-    }
-
-    /**
-     * Returns the value as a boolean.
-     *
-     * @return The value as a boolean.
-     */
-    public boolean asBoolean() {
-        return Boolean.parseBoolean(ValueName);
-    }
-
-    @Override
-    public String toString() {
-        return ValueName;
-    }
-}
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.config;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ *
+ * @author Aayush Atharva
+ */
+public class Value {
+
+    /**
+     * Flags of the typed conversions which have been cached. Each conversion
+     * has a parsed flag and a failed flag.
+     */
+    private static final int INT = 1;
+    private static final int LONG = 1 << 1;
+    private static final int DOUBLE = 1 << 2;
+    private static final int FLOAT = 1 << 3;
+    private static final int BOOLEAN = 1 << 4;
+    private static final int BOOLEAN_TRUE = 1 << 5;
+    private static final int FAILED_SHIFT = 8;
+
+    /**
+     * Sets the conversion flags atomically.
+     */
+    private static final AtomicIntegerFieldUpdater<Value> PARSED = AtomicIntegerFieldUpdater.newUpdater(Value.class, "Parsed");
+
+    /**
+     * Creates the array of cached failures once.
+     */
+    private static final AtomicReferenceFieldUpdater<Value, NumberFormatException[]> FAILURES = AtomicReferenceFieldUpdater.newUpdater(Value.class, NumberFormatException[].class, "Failures");
+
+    /**
+     * The value of the value. Holds the original character sequence until the
+     * value is first read as a string.
+     */
+    private CharSequence ValueName;
+
+    /**
+     * The cached result of {@link #asInt()} and {@link #asLong()}.
+     */
+    private long LongValue;
+
+    /**
+     * The cached result of {@link #asDouble()}.
+     */
+    private double DoubleValue;
+
+    /**
+     * The cached result of {@link #asFloat()}.
+     */
+    private float FloatValue;
+
+    /**
+     * The exceptions of the failed int, long, double and float conversions,
+     * rethrown by every later conversion of the same type, or null until a
+     * conversion fails.
+     */
+    private volatile NumberFormatException[] Failures;
+
+    /**
+     * The flags of the cached conversions. Set after the cached result so
+     * that reading the flags first always sees a complete result.
+     */
+    private volatile int Parsed;
+
+    /**
+     * Creates a new value with the given value.
+     *
+     * @param valueName The value.
+     */
+    public Value(String valueName) {
+        this.ValueName = valueName;
+    }
+
+    /**
+     * Creates a new value with the given character sequence.
+     *
+     * @param valueName The value.
+     */
+    private Value(CharSequence valueName) {
+        this.ValueName = valueName;
+    }
+
+    /**
+     * Returns a new value with the given character sequence. The sequence is
+     * only turned into a string when the value is first read.
+     *
+     * @param valueName The value.
+     * @return The value.
+     */
+    public static Value of(CharSequence valueName) {
+        return new Value(valueName);
+    }
+
+    /**
+     * Returns the value as a string.
+     *
+     * @return The value as a string.
+     */
+    public String asString() {
+        CharSequence valueName = ValueName;
+
+        if (valueName == null || valueName instanceof String) {
+            return (String) valueName;
+        }
+
+        String value = valueName.toString();
+        ValueName = value;
+        return value;
+    }
+   
+    /**
+     * Returns the value as an int. The value is parsed once and the result is
+     * cached.
+     *
+     * @return The value as an int.
+     * @throws NumberFormatException If the value is not an int.
+     */
+    public int asInt() {
+        int parsed = Parsed;
+        if ((parsed & INT) != 0) {
+            return (int) LongValue;
+        }
+        checkFailed(parsed, INT);
+
+        int value;
+        try {
+            value = Integer.parseInt(asString());
+        } catch (NumberFormatException e) {
+            throw failed(INT, e);
+        }
+
+        LongValue = value;
+        parsed(INT);
+        return value;
+    }
+
+    /**
+     * Returns the value as a long. The value is parsed once and the result is
+     * cached.
+     *
+     * @return The value as a long.
+     * @throws NumberFormatException If the value is not a long.
+     */
+    public long asLong() {
+        int parsed = Parsed;
+        if ((parsed & LONG) != 0) {
+            return LongValue;
+        }
+        checkFailed(parsed, LONG);
+
+        long value;
+        try {
+            value = Long.parseLong(asString());
+        } catch (NumberFormatException e) {
+            throw failed(LONG, e);
+        }
+
+        LongValue = value;
+        parsed(LONG);
+        return value;
+    }
+
+    /**
+     * Returns the value as a double. The value is parsed once and the result
+     * is cached.
+     *
+     * @return The value as a double.
+     * @throws NumberFormatException If the value is not a double.
+     */
+    public double asDouble() {
+        int parsed = Parsed;
+        if ((parsed & DOUBLE) != 0) {
+            return DoubleValue;
+        }
+        checkFailed(parsed, DOUBLE);
+
+        double value;
+        try {
+            value = Double.parseDouble(asString());
+        } catch (NumberFormatException e) {
+            throw failed(DOUBLE, e);
+        }
+
+        DoubleValue = value;
+        parsed(DOUBLE);
+        return value;
+    }
+
+    /**
+     * Returns the value as a float. The value is parsed once and the result
+     * is cached.
+     *
+     * @return The value as a float.
+     * @throws NumberFormatException If the value is not a float.
+     */
+    public float asFloat() {
+        int parsed = Parsed;
+        if ((parsed & FLOAT) != 0) {
+            return FloatValue;
+        }
+        checkFailed(parsed, FLOAT);
+
+        float value;
+        try {
+            value = Float.parseFloat(asString());
+        } catch (NumberFormatException e) {
+            throw failed(FLOAT, e);
+        }
+
+        FloatValue = value;
+        parsed(FLOAT);
+        return value;
+    }
+
+    /**
+     * Returns the value as a boolean. The value is parsed once and the result
+     * is cached.
+     *
+     * @return The value as a boolean.
+     */
+    public boolean asBoolean() {
+        int parsed = Parsed;
+        if ((parsed & BOOLEAN) != 0) {
+            return (parsed & BOOLEAN_TRUE) != 0;
+        }
+
+        boolean value = Boolean.parseBoolean(asString());
+        parsed(value ? BOOLEAN | BOOLEAN_TRUE : BOOLEAN);
+        return value;
+    }
+
+    /**
+     * Sets the given conversion flags without losing flags set by other
+     * threads at the same time.
+     *
+     * @param flags The conversion flags.
+     */
+    private void parsed(int flags) {
+        int parsed;
+        do {
+            parsed = Parsed;
+        } while (!PARSED.compareAndSet(this, parsed, parsed | flags));
+    }
+
+    /**
+     * Rethrows the cached failure if the given conversion has failed before.
+     *
+     * @param parsed The current conversion flags.
+     * @param type The conversion flag.
+     */
+    private void checkFailed(int parsed, int type) {
+        if ((parsed & (type << FAILED_SHIFT)) != 0) {
+            throw Failures[Integer.numberOfTrailingZeros(type)];
+        }
+    }
+
+    /**
+     * Caches the failure of the given conversion.
+     *
+     * @param type The conversion flag.
+     * @param e The exception thrown by the conversion.
+     * @return The exception to throw.
+     */
+    private NumberFormatException failed(int type, NumberFormatException e) {
+        NumberFormatException[] failures = Failures;
+        if (failures == null) {
+            FAILURES.compareAndSet(this, null, new NumberFormatException[4]);
+            failures = Failures;
+        }
+
+        failures[Integer.numberOfTrailingZeros(type)] = e;
+        parsed(type << FAILED_SHIFT);
+        return e;
+    }
+
+    @Override
+    public String toString() {
+        return asString();
+    }
+}
@@ -0,0 +1,193 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that unchanged data at a URL is not downloaded again, that gzip
+ * responses and the cache file are used, and that data which failed to
+ * build is downloaded again by the next poll.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseFetcherTest {
+
+    /**
+     * The time between two polls, long enough for the tests to reload by
+     * hand.
+     */
+    private static final long INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    File Directory;
+
+    /**
+     * The document served by the server.
+     */
+    private volatile String Document = "Server:\n    port 8080\n";
+
+    /**
+     * Whether the server compresses the document.
+     */
+    private volatile boolean Gzip;
+
+    /**
+     * The number of times the server sent the document in full.
+     */
+    private final AtomicInteger Sent = new AtomicInteger();
+
+    private HttpServer Server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        Server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        Server.createContext("/", this::serve);
+        Server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        Server.stop(0);
+    }
+
+    @Test
+    void unchangedDataIsNotDownloadedAgain() throws IOException, ConfParseException {
+        try (ConfParseWatcher watcher = ConfParse.fromURL(url()).BuildPolled(INTERVAL)) {
+            assertEquals(1, Sent.get());
+
+            // The Server Answers 304 And Nothing Is Parsed
+            assertEquals(Collections.emptySet(), watcher.reload());
+            assertEquals(1, Sent.get());
+
+            Document = "Server:\n    port 8081\n";
+            assertEquals(Collections.singleton("Server"), watcher.reload());
+            assertEquals("8081", port(watcher.getConfig()));
+            assertEquals(2, Sent.get());
+        }
+    }
+
+    @Test
+    void gzipResponseIsDecoded() throws IOException, ConfParseException {
+        Gzip = true;
+        assertEquals("8080", port(ConfParse.fromURL(url()).BuildFromURL()));
+    }
+
+    @Test
+    void cacheFileIsUsedWhenServerIsDown() throws IOException, ConfParseException {
+        File cache = new File(Directory, "cache.conf");
+        assertEquals("8080", port(ConfParse.fromURL(url()).cacheFile(cache).BuildFromURL()));
+        assertTrue(cache.isFile());
+
+        URL url = url();
+        Server.stop(0);
+
+        AtomicBoolean cached = new AtomicBoolean();
+        ConfParseMetrics metrics = new ConfParseMetrics() {
+            @Override
+            public void fetched(URL url, int status, boolean fromCache, long nanos) {
+                cached.set(fromCache);
+            }
+        };
+
+        assertEquals("8080", port(ConfParse.fromURL(url).cacheFile(cache).metrics(metrics).connectTimeout(1000).BuildFromURL()));
+        assertTrue(cached.get());
+    }
+
+    @Test
+    void failedBuildIsDownloadedAgain() throws IOException, ConfParseException {
+        // Fail The Build Of The First Changed Data After It Was Parsed
+        AtomicBoolean built = new AtomicBoolean();
+        AtomicBoolean failed = new AtomicBoolean();
+        ConfParseMetrics metrics = new ConfParseMetrics() {
+            @Override
+            public void loaded(ConfParseLoadStats stats) {
+                if (built.getAndSet(true) && !failed.getAndSet(true)) {
+                    throw new IllegalStateException("Build Failed");
+                }
+            }
+        };
+
+        try (ConfParseWatcher watcher = ConfParse.fromURL(url()).metrics(metrics).BuildPolled(INTERVAL)) {
+            Document = "Server:\n    port 8081\n";
+            assertThrows(ConfParseLoadConfigException.class, watcher::reload);
+            assertEquals("8080", port(watcher.getConfig()));
+
+            // The Validators Of The Failed Data Were Not Kept
+            assertEquals(Collections.singleton("Server"), watcher.reload());
+            assertEquals("8081", port(watcher.getConfig()));
+            assertEquals(3, Sent.get());
+        }
+    }
+
+    /**
+     * Answers a request with the document, or with 304 if the client already
+     * has the current document.
+     *
+     * @param exchange The request.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        String document = Document;
+        String etag = "\"" + Integer.toHexString(document.hashCode()) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        Sent.incrementAndGet();
+        if (Gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = Gzip ? new GZIPOutputStream(exchange.getResponseBody()) : exchange.getResponseBody()) {
+            out.write(document.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private URL url() throws IOException {
+        return new URL("http", Server.getAddress().getHostString(), Server.getAddress().getPort(), "/server.conf");
+    }
+
+    private static String port(ConfParseConfig config) {
+        return config.getKey("Server", "port").getValue(0).asString();
+    }
+}
@@ -0,0 +1,99 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that handles keep reading the same key until the config is
+ * reloaded and then resolve it again.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseHandleTest {
+
+    /**
+     * The debounce period of the watchers, long enough that only the explicit
+     * reloads of the tests happen.
+     */
+    private static final long DEBOUNCE = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    File Directory;
+
+    @Test
+    void handleResolvesOnce() throws ConfParseException {
+        ConfParseConfig config = ConfParse.fromData("Server:\n    port 8080\n").BuildFromData();
+        ConfParseHandle handle = config.getHandle("Server", "port");
+
+        assertEquals("Server", handle.getHeaderName());
+        assertEquals("port", handle.getKeyName());
+        assertSame(config.getKey("Server", "port"), handle.getKey());
+        assertSame(handle.getKey(), handle.getKey());
+        assertEquals("8080", handle.getValue(0).asString());
+    }
+
+    @Test
+    void handleResolvesAgainAfterReload() throws IOException, ConfParseException {
+        File file = write("handle.conf", "Server:\n    port 8080\n");
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).BuildWatched(DEBOUNCE)) {
+            ConfParseHandle port = watcher.getConfig().getHandle("Server", "port");
+            ConfParseHandle threads = watcher.getConfig().getHandle("Server", "threads");
+            Key before = port.getKey();
+            assertFalse(threads.hasKey());
+            assertNull(threads.getValue(0));
+
+            write("handle.conf", "Server:\n    port 8081\n    threads 4\n");
+            watcher.reload();
+
+            assertNotSame(before, port.getKey());
+            assertEquals("8081", port.getValue(0).asString());
+            assertTrue(threads.hasKey());
+            assertEquals("4", threads.getValue(0).asString());
+
+            // A Removed Key Reads As Missing
+            write("handle.conf", "Client:\n    port 8082\n");
+            watcher.reload();
+
+            assertNull(port.getKey());
+            assertNull(port.getValue(0));
+            assertFalse(threads.hasKey());
+        }
+    }
+
+    private File write(String name, String data) throws IOException {
+        File file = new File(Directory, name);
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
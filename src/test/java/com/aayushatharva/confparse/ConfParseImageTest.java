@@ -0,0 +1,100 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that malformed config images are never read and the config is
+ * parsed from its text instead.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseImageTest {
+
+    @TempDir
+    File Directory;
+
+    private File ConfigFile;
+
+    private File ImageFile;
+
+    @BeforeEach
+    void writeConfig() throws IOException {
+        ConfigFile = new File(Directory, "image.conf");
+        ImageFile = new File(Directory, "image.bin");
+        Files.write(ConfigFile.toPath(), "Server:\n    host example.com\n    port 8080\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void truncatedImageFallsBackToText() throws IOException, ConfParseException {
+        ConfParse.fromFile(ConfigFile).BuildPrecompiled(ImageFile);
+
+        // Keep The Magic And Version But Cut Off The Rest
+        for (long length : new long[]{ImageFile.length() - 1, 12, 8, 0}) {
+            truncate(length);
+
+            ConfParseImage image = ConfParse.fromFile(ConfigFile).BuildPrecompiled(ImageFile);
+            assertEquals("example.com", image.getValue("Server", "host", 0));
+            assertEquals("8080", image.getValue("Server", "port", 0));
+        }
+    }
+
+    @Test
+    void truncatedImageIsRejected() throws IOException, ConfParseException {
+        ConfParse.fromFile(ConfigFile).BuildPrecompiled(ImageFile);
+        truncate(12);
+
+        assertThrows(ConfParseInvalidConfigException.class, () -> ConfParseImage.load(ImageFile));
+    }
+
+    @Test
+    void rewrittenImageIsUsed() throws IOException, ConfParseException {
+        ConfParse.fromFile(ConfigFile).BuildPrecompiled(ImageFile);
+        truncate(0);
+
+        // The Fallback Writes A Valid Image Again
+        ConfParse.fromFile(ConfigFile).BuildPrecompiled(ImageFile);
+        ConfParseImage image = ConfParseImage.load(ImageFile);
+        assertEquals("8080", image.getValue("Server", "port", 0));
+        assertNull(image.getHeader("Client"));
+    }
+
+    /**
+     * Cuts the image file off at the given length.
+     *
+     * @param length The new length.
+     */
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(ImageFile, "rw")) {
+            file.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that included fragments are parsed again once they or a fragment
+ * they include change, that they are loaded without blocking the threads
+ * they are loaded on, and that remote configs only include remote configs.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseIncludesTest {
+
+    @TempDir
+    File Directory;
+
+    /**
+     * The documents served by the server by their path.
+     */
+    private final Map<String, String> Documents = new ConcurrentHashMap<>();
+
+    /**
+     * The number of documents the server sent in full.
+     */
+    private final AtomicInteger Sent = new AtomicInteger();
+
+    private HttpServer Server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        Server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        Server.createContext("/", this::serve);
+        Server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        Server.stop(0);
+    }
+
+    @Test
+    void changedNestedFileIncludeIsReparsed() throws IOException, ConfParseException {
+        File main = write("main.conf", "@include shared/outer.conf\n\nServer:\n    port 8080\n");
+        write("shared/outer.conf", "@include inner.conf\n\nOuter:\n    name outer\n");
+        File inner = write("shared/inner.conf", "Inner:\n    value first\n");
+
+        ConfParse.ConfParser builder = ConfParse.fromFile(main).includes(true);
+        assertEquals("first", value(builder.BuildFromFile(), "Inner", "value"));
+        assertEquals("first", value(builder.BuildFromFile(), "Inner", "value"));
+
+        // Only The Innermost Fragment Changes
+        Files.write(inner.toPath(), "Inner:\n    value second\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(inner.setLastModified(inner.lastModified() + 2000));
+
+        ConfParseConfig config = builder.BuildFromFile();
+        assertEquals("second", value(config, "Inner", "value"));
+        assertEquals("outer", value(config, "Outer", "name"));
+        assertEquals("8080", value(config, "Server", "port"));
+    }
+
+    @Test
+    void changedURLIncludeIsReparsed() throws IOException, ConfParseException {
+        Documents.put("/main.conf", "@include shared.conf\n\nServer:\n    port 8080\n");
+        Documents.put("/shared.conf", "Shared:\n    value first\n");
+
+        ConfParse.ConfParser builder = ConfParse.fromURL(url("/main.conf")).includes(true);
+        assertEquals("first", value(builder.BuildFromURL(), "Shared", "value"));
+        assertEquals(2, Sent.get());
+
+        // The Unchanged Fragment Is Answered With 304
+        assertEquals("first", value(builder.BuildFromURL(), "Shared", "value"));
+        assertEquals(3, Sent.get());
+
+        Documents.put("/shared.conf", "Shared:\n    value second\n");
+        assertEquals("second", value(builder.BuildFromURL(), "Shared", "value"));
+    }
+
+    @Test
+    void remoteConfigCannotIncludeLocalFile() throws IOException, ConfParseException {
+        File local = write("local.conf", "Local:\n    secret value\n");
+        Documents.put("/main.conf", "@include " + local.toURI() + "\n\nServer:\n    port 8080\n");
+
+        ConfParse.ConfParser builder = ConfParse.fromURL(url("/main.conf")).includes(true);
+        assertThrows(ConfParseInvalidConfigException.class, builder::BuildFromURL);
+    }
+
+    @Test
+    void nestedIncludesDoNotBlockPool() throws IOException, ConfParseException {
+        File main = write("main.conf", "@include a.conf\n@include b.conf\n\nServer:\n    port 8080\n");
+        write("a.conf", "@include c.conf\n@include d.conf\n\nA:\n    value a\n");
+        write("b.conf", "@include d.conf\n\nB:\n    value b\n");
+        write("c.conf", "@include d.conf\n\nC:\n    value c\n");
+        write("d.conf", "D:\n    value d\n");
+
+        // A Single Thread Which Is Never Replaced While It Blocks
+        ForkJoinPool pool = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, 0, 1, 1, null, 1, TimeUnit.MINUTES);
+        try {
+            ConfParseConfig config = ConfParse.fromFile(main).includes(true).parallel(pool).BuildFromFile();
+            for (String header : new String[]{"A", "B", "C", "D"}) {
+                assertEquals(header.toLowerCase(), value(config, header, "value"));
+            }
+            assertEquals("8080", value(config, "Server", "port"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void buildersDoNotShareFragments() throws IOException, ConfParseException {
+        File main = write("main.conf", "@include shared.conf\n\nServer:\n    port 8080\n");
+        File shared = write("shared.conf", "Shared:\n    value first\n");
+        long modified = shared.lastModified();
+        assertEquals("first", value(ConfParse.fromFile(main).includes(true).BuildFromFile(), "Shared", "value"));
+
+        // Same Length And Modification Time, So Only Another Builder Sees The Change
+        Files.write(shared.toPath(), "Shared:\n    value other\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(shared.setLastModified(modified));
+
+        assertEquals("other", value(ConfParse.fromFile(main).includes(true).BuildFromFile(), "Shared", "value"));
+    }
+
+    @Test
+    void unexpectedErrorIsWrapped() {
+        ConfParseIncludes includes = new ConfParseIncludes(null, null, 0, 0, "", Runnable::run, new ConfParseIncludes.Cache());
+        CompletableFuture<ConfParseIncludes.Fragment> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("Load Failed"));
+
+        ConfParseException error = assertThrows(ConfParseLoadConfigException.class, () -> includes.join(failed));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+
+    @Test
+    void rejectedIncludeIsWrapped() throws IOException {
+        File main = write("main.conf", "@include shared.conf\n\nServer:\n    port 8080\n");
+        write("shared.conf", "Shared:\n    value first\n");
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        pool.shutdown();
+
+        ConfParseException error = assertThrows(ConfParseLoadConfigException.class, () -> ConfParse.fromFile(main).includes(true).parallel(pool).BuildFromFile());
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+
+    /**
+     * Answers a request with the document of its path, or with 304 if the
+     * client already has the current document.
+     *
+     * @param exchange The request.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        String document = Documents.get(exchange.getRequestURI().getPath());
+        if (document == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        String etag = "\"" + Integer.toHexString(document.hashCode()) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] data = document.getBytes(StandardCharsets.UTF_8);
+        Sent.incrementAndGet();
+        exchange.sendResponseHeaders(200, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http", Server.getAddress().getHostString(), Server.getAddress().getPort(), path);
+    }
+
+    private File write(String path, String data) throws IOException {
+        File file = new File(Directory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String value(ConfParseConfig config, String header, String key) {
+        return config.getKey(header, key).getValue(0).asString();
+    }
+}
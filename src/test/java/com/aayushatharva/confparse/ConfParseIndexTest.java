@@ -0,0 +1,58 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the index of a frozen config finds the same headers and keys
+ * as the parsed config, including headers which are parsed on first read.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseIndexTest {
+
+    private static final String CONFIG = "Server:\n    host example.com\n    port 8080\n\nClient:\n    host client.example.com\n";
+
+    @Test
+    void frozenConfigFindsHeadersAndKeys() throws ConfParseException {
+        ConfParseConfig config = ConfParse.fromData(CONFIG).freeze(true).BuildFromData();
+
+        assertEquals("Server", config.getHeader("Server").getName());
+        assertEquals("8080", config.getKey("Server", "port").getValue(0).asString());
+        assertEquals("client.example.com", config.getKey("Client", "host").getValue(0).asString());
+        assertNull(config.getHeader("Other"));
+        assertNull(config.getKey("Client", "port"));
+        assertNull(config.getKey("Other", "host"));
+    }
+
+    @Test
+    void lazyHeadersAreFoundThroughTheirHeader() throws ConfParseException {
+        ConfParseConfig config = ConfParse.fromData(CONFIG).lazyHeaders(true).freeze(true).BuildFromData();
+        ConfParseLazyHeader client = assertInstanceOf(ConfParseLazyHeader.class, config.getHeaders().get("Client"));
+
+        assertEquals("8080", config.getKey("Server", "port").getValue(0).asString());
+        assertNull(config.getKey("Server", "threads"));
+        assertFalse(client.isParsed());
+    }
+}
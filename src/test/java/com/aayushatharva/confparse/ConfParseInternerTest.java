@@ -0,0 +1,84 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the interner shares repeated tokens, counts what it saved and
+ * never holds more than its capacity.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseInternerTest {
+
+    @Test
+    void repeatedTokensAreShared() throws ConfParseException {
+        ConfParseInterner interner = new ConfParseInterner();
+        ConfParseConfig config = ConfParse.fromData("First:\n    host localhost\n\nSecond:\n    host localhost\n").intern(interner).BuildFromData();
+
+        assertSame(config.getKey("First", "host").getValue(0), config.getKey("Second", "host").getValue(0));
+        assertEquals(2, interner.getHits());
+        assertEquals(4, interner.size());
+    }
+
+    @Test
+    void bytesSavedAreCounted() {
+        ConfParseInterner interner = new ConfParseInterner();
+        String name = interner.name("Server");
+        assertSame(name, interner.name(new String("Server")));
+
+        // 24 Byte String Plus 6 Latin-1 Characters In A 16 Byte Array, Aligned
+        assertEquals(48, interner.getBytesSaved());
+
+        // Characters Outside Latin-1 Take Two Bytes
+        interner.value("€");
+        interner.value(new String("€"));
+        assertEquals(48 + 48 + 24 + 24, interner.getBytesSaved());
+        assertEquals(2, interner.getHits());
+    }
+
+    @Test
+    void internerNeverGrowsPastCapacity() {
+        ConfParseInterner interner = new ConfParseInterner(4);
+        for (int i = 0; i < 1000; i++) {
+            interner.name("name" + i);
+            interner.value("value" + i);
+        }
+
+        // Four Slots For Names And Four For Values
+        assertTrue(interner.size() <= 8, "size " + interner.size());
+
+        interner.clear();
+        assertEquals(0, interner.size());
+        assertEquals(0, interner.getHits());
+        assertEquals(0, interner.getBytesSaved());
+    }
+
+    @Test
+    void invalidCapacityIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ConfParseInterner(0));
+        assertThrows(IllegalArgumentException.class, () -> new ConfParseInterner(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ConfParseInterner((1 << 30) + 1));
+    }
+}
@@ -0,0 +1,117 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that lookups of layered configs fall through to the layers below
+ * without modifying any layer, and that reloaded layers are picked up.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseLayersTest {
+
+    /**
+     * The debounce period of the watchers, long enough that only the explicit
+     * reloads of the tests happen.
+     */
+    private static final long DEBOUNCE = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    File Directory;
+
+    @Test
+    void lookupsFallThroughTheLayers() throws ConfParseException {
+        ConfParseConfig global = ConfParse.fromData("Server:\n    host global\n    port 80\n    threads 4\n\nLogging:\n    level info\n").BuildFromData();
+        ConfParseConfig region = ConfParse.fromData("Server:\n    host region\n    port 8080\n").BuildFromData();
+        ConfParseConfig host = ConfParse.fromData("Server:\n    host host\n").BuildFromData();
+
+        ConfParseConfig config = host.over(region).over(global);
+        assertEquals("host", value(config, "Server", "host"));
+        assertEquals("8080", value(config, "Server", "port"));
+        assertEquals("4", value(config, "Server", "threads"));
+        assertEquals("info", value(config, "Logging", "level"));
+        assertNull(config.getKey("Server", "missing"));
+        assertNull(config.getHeader("Missing"));
+    }
+
+    @Test
+    void mergedHeaderHasKeysOfBothLayers() throws ConfParseException {
+        ConfParseConfig base = ConfParse.fromData("Server:\n    host base\n    port 80\n").BuildFromData();
+        ConfParseConfig upper = ConfParse.fromData("Server:\n    host upper\n\nClient:\n    host client\n").BuildFromData();
+
+        ConfParseConfig config = upper.over(base);
+        Header server = config.getHeader("Server");
+        Set<String> keys = new TreeSet<>();
+        for (Key key : server.getKeys()) {
+            keys.add(key.getName());
+        }
+        assertEquals(new TreeSet<>(Set.of("host", "port")), keys);
+        assertEquals("upper", server.getKey("host").getValue(0).asString());
+        assertEquals(new TreeSet<>(Set.of("Client", "Server")), new TreeSet<>(config.getHeaders().keySet()));
+
+        // Neither Layer Is Modified
+        assertEquals(1, upper.getHeader("Server").getKeyCount());
+        assertEquals(2, base.getHeader("Server").getKeyCount());
+        assertNull(upper.getKey("Server", "port"));
+    }
+
+    @Test
+    void reloadedLayerIsPickedUp() throws IOException, ConfParseException {
+        File file = write("base.conf", "Server:\n    host base\n    port 80\n");
+        ConfParseConfig upper = ConfParse.fromData("Server:\n    host upper\n").BuildFromData();
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).BuildWatched(DEBOUNCE)) {
+            ConfParseConfig config = upper.over(watcher.getConfig());
+            assertEquals("80", value(config, "Server", "port"));
+            assertEquals(2, config.getHeader("Server").getKeyCount());
+
+            write("base.conf", "Server:\n    host base\n    port 8080\n    threads 4\n");
+            watcher.reload();
+
+            assertEquals("8080", value(config, "Server", "port"));
+            assertEquals("4", value(config, "Server", "threads"));
+            assertEquals("upper", value(config, "Server", "host"));
+            assertEquals(3, config.getHeader("Server").getKeyCount());
+        }
+    }
+
+    private File write(String name, String data) throws IOException {
+        File file = new File(Directory, name);
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String value(ConfParseConfig config, String header, String key) {
+        return config.getKey(header, key).getValue(0).asString();
+    }
+}
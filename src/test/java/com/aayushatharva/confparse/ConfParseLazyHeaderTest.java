@@ -0,0 +1,114 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Checks that headers which parse their keys on first read are not parsed by
+ * defaults, layering or listeners.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseLazyHeaderTest {
+
+    @TempDir
+    File Directory;
+
+    @Test
+    void untouchedHeadersStayUnparsed() throws IOException, ConfParseException {
+        File file = new File(Directory, "lazy.conf");
+        write(file, config("1"));
+
+        ConfParse.ConfParser builder = ConfParse.fromFile(file).lazyHeaders(true)
+                .def(new Header("H1"), new Key("fallback"), new Value("default"));
+
+        try (ConfParseWatcher watcher = builder.BuildWatched(TimeUnit.MINUTES.toMillis(1))) {
+            ConfParseConfig config = watcher.getConfig();
+            List<String> events = ConfParseListenerTest.listen(config, "H2", null);
+            ConfParseConfig layered = config.over(ConfParse.fromData("H3:\n    base 1\n").BuildFromData());
+            assertEquals(10, layered.getHeaders().size());
+            assertUnparsed(config, Collections.emptySet());
+
+            write(file, config("2"));
+            watcher.reload();
+            assertEquals(Arrays.asList("MODIFIED H2", "MODIFIED H2/value [1] -> [2]"), events);
+
+            // Only The Listened Header And The Read Headers Are Parsed
+            assertEquals("default", config.getKey("H1", "fallback").getValue(0).asString());
+            assertEquals("1", layered.getKey("H3", "base").getValue(0).asString());
+            assertUnparsed(config, new HashSet<>(Arrays.asList("H1", "H2", "H3")));
+            assertUnparsed(layered, new HashSet<>(Arrays.asList("H1", "H2", "H3")));
+        }
+    }
+
+    /**
+     * Checks that all headers but the given ones have not been parsed.
+     *
+     * @param config The config.
+     * @param read The names of the headers which may have been parsed.
+     */
+    private static void assertUnparsed(ConfParseConfig config, Set<String> read) {
+        for (Map.Entry<String, Header> entry : config.getHeaders().entrySet()) {
+            if (!read.contains(entry.getKey())) {
+                assertInstanceOf(ConfParseLazyHeader.class, entry.getValue());
+                assertFalse(((ConfParseLazyHeader) entry.getValue()).isParsed(), entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Returns a config with ten headers where the value of H2 is the given
+     * value.
+     *
+     * @param value The value of H2.
+     * @return The config.
+     */
+    private static String config(String value) {
+        StringBuilder sb = new StringBuilder();
+        for (int h = 0; h < 10; h++) {
+            sb.append('H').append(h).append(":\n");
+            sb.append("    value ").append(h == 2 ? value : "1").append('\n');
+            sb.append("    other a b c\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static void write(File file, String data) throws IOException {
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+    }
+}
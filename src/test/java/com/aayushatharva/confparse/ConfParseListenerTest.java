@@ -0,0 +1,154 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the change events listeners receive when a config is reloaded.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseListenerTest {
+
+    /**
+     * The debounce period of the watchers, long enough that only the explicit
+     * reloads of the tests happen.
+     */
+    private static final long DEBOUNCE = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    File Directory;
+
+    @Test
+    void listenerReceivesHeaderAndKeyChanges() throws IOException, ConfParseException {
+        File file = write("all.conf", "A:\n    k 1\n    x 1\n\nB:\n    k 1\n");
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).BuildWatched(DEBOUNCE)) {
+            List<String> events = listen(watcher.getConfig(), null, null);
+
+            write("all.conf", "A:\n    k 2\n    y 1\n\nC:\n    k 1\n");
+            watcher.reload();
+
+            events.sort(null);
+            assertEquals(Arrays.asList(
+                    "ADDED A/y [] -> [1]",
+                    "ADDED C",
+                    "ADDED C/k [] -> [1]",
+                    "MODIFIED A",
+                    "MODIFIED A/k [1] -> [2]",
+                    "REMOVED A/x [1] -> []",
+                    "REMOVED B",
+                    "REMOVED B/k [1] -> []"), events);
+        }
+    }
+
+    @Test
+    void listenersOnlyReceiveTheirHeaderOrKey() throws IOException, ConfParseException {
+        File file = write("some.conf", "A:\n    k 1\n    x 1\n\nB:\n    k 1\n");
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).BuildWatched(DEBOUNCE)) {
+            List<String> header = listen(watcher.getConfig(), "A", null);
+            List<String> key = listen(watcher.getConfig(), "A", "k");
+            List<String> other = listen(watcher.getConfig(), "B", null);
+
+            write("some.conf", "A:\n    k 2\n    x 2\n\nB:\n    k 1\n");
+            watcher.reload();
+
+            assertEquals(Arrays.asList("MODIFIED A", "MODIFIED A/k [1] -> [2]", "MODIFIED A/x [1] -> [2]"), sorted(header));
+            assertEquals(Arrays.asList("MODIFIED A/k [1] -> [2]"), key);
+            assertEquals(Arrays.asList(), other);
+        }
+    }
+
+    @Test
+    void slowListenerDoesNotBlockReload() throws IOException, ConfParseException, InterruptedException {
+        File file = write("slow.conf", "A:\n    k 1\n");
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).BuildWatched(DEBOUNCE)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch notified = new CountDownLatch(2);
+            watcher.getConfig().addListener(events -> {
+                notified.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            write("slow.conf", "A:\n    k 2\n");
+            watcher.reload();
+            write("slow.conf", "A:\n    k 3\n");
+            watcher.reload();
+
+            assertEquals("3", watcher.getConfig().getKey("A", "k").getValue(0).asString());
+            release.countDown();
+            assertTrue(notified.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Adds a listener which is notified on the reloading thread and returns
+     * the events it receives as strings.
+     *
+     * @param config The config.
+     * @param header The header, or null for all changes.
+     * @param key The key, or null for all changes of the header.
+     * @return The received events.
+     */
+    static List<String> listen(ConfParseConfig config, String header, String key) {
+        List<String> received = new ArrayList<>();
+        ConfParseListener listener = events -> events.forEach(event -> received.add(event.toString()));
+
+        config.setListenerExecutor(Runnable::run);
+        if (header == null) {
+            config.addListener(listener);
+        } else if (key == null) {
+            config.addListener(header, listener);
+        } else {
+            config.addListener(header, key, listener);
+        }
+        return received;
+    }
+
+    private static List<String> sorted(List<String> events) {
+        List<String> copy = new ArrayList<>(events);
+        copy.sort(null);
+        return copy;
+    }
+
+    private File write(String name, String data) throws IOException {
+        File file = new File(Directory, name);
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
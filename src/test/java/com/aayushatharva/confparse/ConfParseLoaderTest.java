@@ -0,0 +1,143 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that asynchronous builds keep to their deadline, stop when they are
+ * cancelled and leave no deadlines behind.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseLoaderTest {
+
+    private static final String CONFIG = "Server:\n    port 8080\n";
+
+    @Test
+    void buildCompletesAsync() throws InterruptedException, ExecutionException, ConfParseException {
+        ConfParseConfig config = ConfParse.fromData(CONFIG).loadTimeout(TimeUnit.MINUTES.toMillis(1)).BuildAsync().get();
+        assertEquals("8080", config.getKey("Server", "port").getValue(0).asString());
+
+        // The Deadline Is Dropped Once The Build Completed, Which May Happen Just After get() Returned
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!ConfParseLoader.getTimer().getQueue().isEmpty() && System.nanoTime() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(ConfParseLoader.getTimer().getQueue().isEmpty());
+    }
+
+    @Test
+    void missedDeadlineFailsTheBuild() throws ConfParseException {
+        List<Runnable> tasks = new ArrayList<>();
+        CompletableFuture<ConfParseConfig> future = ConfParse.fromData(CONFIG).loadTimeout(100).BuildAsync(tasks::add);
+
+        // The Task Never Runs, So Only The Deadline Completes The Future
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+        assertInstanceOf(ConfParseLoadConfigException.class, error.getCause());
+
+        // A Task Which Starts Late Does Not Build
+        tasks.get(0).run();
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    void cancelInterruptsTheBuild() throws InterruptedException, ConfParseException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ConfParseMetrics metrics = new ConfParseMetrics() {
+            @Override
+            public void loaded(ConfParseLoadStats stats) {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<ConfParseConfig> future = ConfParse.fromData(CONFIG).metrics(metrics).BuildAsync(executor);
+            assertTrue(started.await(30, TimeUnit.SECONDS));
+
+            assertTrue(future.cancel(true));
+            assertTrue(interrupted.await(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedBuildFails() {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException();
+        };
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> ConfParse.fromData(CONFIG).BuildAsync(rejecting).get());
+        assertInstanceOf(ConfParseLoadConfigException.class, error.getCause());
+    }
+
+    @Test
+    void loadAllFailsWithFirstError() throws ConfParseException {
+        List<Runnable> tasks = new ArrayList<>();
+        AtomicBoolean failing = new AtomicBoolean();
+        Executor executor = task -> {
+            // Run The Invalid Config Right Away And Hold Back The Valid One
+            if (failing.compareAndSet(false, true)) {
+                tasks.add(task);
+            } else {
+                task.run();
+            }
+        };
+
+        CompletableFuture<List<ConfParseConfig>> all = ConfParse.loadAll(executor, ConfParse.fromData(CONFIG), ConfParse.fromData("port 8080\n"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, all::get);
+        assertInstanceOf(ConfParseInvalidConfigException.class, error.getCause());
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    void loadAllKeepsTheOrderOfTheBuilders() throws InterruptedException, ExecutionException, ConfParseException {
+        List<ConfParseConfig> configs = ConfParse.loadAll(ConfParse.fromData(CONFIG), ConfParse.fromData("Client:\n    port 9090\n")).get();
+
+        assertEquals(2, configs.size());
+        assertTrue(configs.get(0).hasHeader("Server"));
+        assertTrue(configs.get(1).hasHeader("Client"));
+    }
+}
@@ -0,0 +1,153 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what loads and reloads report to the metrics of a builder and the
+ * counting of missed lookups.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseMetricsTest {
+
+    /**
+     * The debounce period of the watchers, long enough that only the explicit
+     * reloads of the tests happen.
+     */
+    private static final long DEBOUNCE = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String CONFIG = "Server:\n    host example.com\n    port 8080\n\n# Comment\nClient:\n    host client.example.com\n";
+
+    @TempDir
+    File Directory;
+
+    @Test
+    void loadReportsStats() throws IOException, ConfParseException {
+        File file = write("metrics.conf", CONFIG);
+        List<ConfParseLoadStats> loads = new ArrayList<>();
+
+        ConfParse.ConfParser builder = ConfParse.fromFile(file).metrics(new ConfParseMetrics() {
+            @Override
+            public void loaded(ConfParseLoadStats stats) {
+                loads.add(stats);
+            }
+        });
+        builder.def(new Header("Defaults"), new Key("threads"), new Value("4"));
+        builder.BuildFromFile();
+
+        assertEquals(1, loads.size());
+        ConfParseLoadStats stats = loads.get(0);
+        assertEquals(file.getPath(), stats.getSource());
+        assertEquals(file.length(), stats.getBytes());
+        assertEquals(5, stats.getLines());
+        assertEquals(3, stats.getHeaders());
+        assertEquals(4, stats.getKeys());
+        assertTrue(stats.getReadNanos() >= 0 && stats.getParseNanos() >= 0 && stats.getDefaultsNanos() >= 0);
+        assertEquals(stats.getReadNanos() + stats.getParseNanos() + stats.getDefaultsNanos(), stats.getTotalNanos());
+    }
+
+    @Test
+    void unparsedLazyHeadersAreNotCounted() throws ConfParseException {
+        List<ConfParseLoadStats> loads = new ArrayList<>();
+        ConfParse.fromData(CONFIG).lazyHeaders(true).metrics(new ConfParseMetrics() {
+            @Override
+            public void loaded(ConfParseLoadStats stats) {
+                loads.add(stats);
+            }
+        }).BuildFromData();
+
+        assertEquals("data", loads.get(0).getSource());
+        assertEquals(2, loads.get(0).getHeaders());
+        assertEquals(0, loads.get(0).getKeys());
+    }
+
+    @Test
+    void reloadsAreReported() throws IOException, ConfParseException {
+        File file = write("reloaded.conf", CONFIG);
+        List<String> reloads = new ArrayList<>();
+        List<ConfParseException> errors = new ArrayList<>();
+
+        ConfParseMetrics metrics = new ConfParseMetrics() {
+            @Override
+            public void reloaded(String source, int changedHeaders, ConfParseException error, long nanos) {
+                reloads.add(source + " " + changedHeaders);
+                errors.add(error);
+            }
+        };
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).incremental(true).metrics(metrics).BuildWatched(DEBOUNCE)) {
+            write("reloaded.conf", CONFIG.replace("8080", "8081"));
+            watcher.reload();
+
+            // A Failed Reload Changes Nothing And Reports Its Error
+            write("reloaded.conf", "port 8082\n");
+            assertThrows(ConfParseInvalidConfigException.class, watcher::reload);
+        }
+
+        assertEquals(2, reloads.size());
+        assertEquals(file.getPath() + " 1", reloads.get(0));
+        assertEquals(file.getPath() + " 0", reloads.get(1));
+        assertNull(errors.get(0));
+        assertInstanceOf(ConfParseInvalidConfigException.class, errors.get(1));
+    }
+
+    @Test
+    void missedLookupsAreCounted() throws ConfParseException {
+        ConfParseConfig config = ConfParse.fromData(CONFIG).BuildFromData();
+
+        config.getHeader("Server");
+        config.getKey("Server", "host");
+        assertEquals(0, config.getLookupMisses());
+
+        config.getHeader("Other");
+        config.getKey("Server", "threads");
+        config.getKey("Other", "host");
+        assertEquals(3, config.getLookupMisses());
+
+        // Checks Are Not Counted
+        config.hasHeader("Other");
+        config.hasHeaderAndKey("Server", "threads");
+        assertEquals(3, config.getLookupMisses());
+    }
+
+    private File write(String name, String data) throws IOException {
+        File file = new File(Directory, name);
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
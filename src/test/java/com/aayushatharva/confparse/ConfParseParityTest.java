@@ -0,0 +1,167 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that every way of parsing a config gives the same config as the plain
+ * parse of the same file.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseParityTest {
+
+    /**
+     * The number of headers of the config.
+     */
+    private static final int HEADERS = 4000;
+
+    @TempDir
+    static File Directory;
+
+    /**
+     * The config file.
+     */
+    private static File ConfigFile;
+
+    /**
+     * The plain parse of the config file.
+     */
+    private static Map<String, Map<String, List<String>>> Expected;
+
+    @BeforeAll
+    static void writeConfig() throws IOException, ConfParseException {
+        ConfigFile = new File(Directory, "parity.conf");
+        Files.write(ConfigFile.toPath(), config(0).getBytes(StandardCharsets.UTF_8));
+        Expected = dump(ConfParse.fromFile(ConfigFile).BuildFromFile());
+        assertEquals(HEADERS, Expected.size());
+    }
+
+    @Test
+    void lazyParseMatchesPlainParse() throws ConfParseException {
+        assertEquals(Expected, dump(ConfParse.fromFile(ConfigFile).lazy(true).BuildFromFile()));
+    }
+
+    @Test
+    void lazyHeadersParseMatchesPlainParse() throws ConfParseException {
+        assertEquals(Expected, dump(ConfParse.fromFile(ConfigFile).lazyHeaders(true).BuildFromFile()));
+    }
+
+    @Test
+    void parallelParseMatchesPlainParse() throws ConfParseException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(Expected, dump(ConfParse.fromFile(ConfigFile).parallel(pool).BuildFromFile()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void mappedParseMatchesPlainParse() throws ConfParseException {
+        assertEquals(Expected, dump(ConfParse.fromFile(ConfigFile).memoryMapped(true).BuildFromFile()));
+    }
+
+    @Test
+    void byteAndStringParsesMatchPlainParse() throws IOException, ConfParseException {
+        byte[] data = Files.readAllBytes(ConfigFile.toPath());
+        assertEquals(Expected, dump(ConfParse.fromBytes(data).BuildFromBytes()));
+        assertEquals(Expected, dump(ConfParse.fromData(new String(data, StandardCharsets.UTF_8)).BuildFromData()));
+    }
+
+    @Test
+    void incrementalReloadMatchesPlainParse() throws IOException, ConfParseException {
+        File file = new File(Directory, "incremental.conf");
+        Files.write(file.toPath(), config(0).getBytes(StandardCharsets.UTF_8));
+
+        ConfParse.ConfParser builder = ConfParse.fromFile(file).incremental(true);
+        ConfParseConfig previous = builder.BuildFromFile();
+        assertEquals(Expected, dump(previous));
+
+        // Change Some Sections And Keep The Others
+        Files.write(file.toPath(), config(7).getBytes(StandardCharsets.UTF_8));
+        ConfParseConfig reloaded = builder.BuildFromFile(previous);
+
+        assertEquals(dump(ConfParse.fromFile(file).BuildFromFile()), dump(reloaded));
+        assertEquals(HEADERS / 7 + 1, reloaded.changedHeaders(previous).size());
+    }
+
+    /**
+     * Returns a config of more than 256 KB with comments, multi-byte
+     * characters, multiple values and keys without values. Every header whose
+     * number is a multiple of the given change, if it is not 0, gets another
+     * value.
+     *
+     * @param change The step of the changed headers, or 0.
+     * @return The config.
+     */
+    private static String config(int change) {
+        StringBuilder sb = new StringBuilder("# Parity Test\n\n");
+        for (int h = 0; h < HEADERS; h++) {
+            sb.append("Header").append(h).append(":\n");
+            if (h % 10 == 0) {
+                sb.append("    # Comment Inside A Header\n");
+            }
+            sb.append("    name Zoë-").append(h).append('\n');
+            sb.append("    ports ").append(h).append(' ').append(h + 1).append(' ').append(h + 2).append('\n');
+            sb.append("    weight ").append(change != 0 && h % change == 0 ? "changed" : h * 0.5).append('\n');
+            sb.append("    empty\n");
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the headers, keys and values of the given config, sorted by name.
+     *
+     * @param config The config.
+     * @return The contents of the config.
+     */
+    static Map<String, Map<String, List<String>>> dump(ConfParseConfig config) {
+        Map<String, Map<String, List<String>>> headers = new TreeMap<>();
+        for (Header header : config.getHeaders().values()) {
+            Map<String, List<String>> keys = new TreeMap<>();
+            for (Key key : header.getKeys()) {
+                List<String> values = new ArrayList<>();
+                for (Value value : key.getValues()) {
+                    values.add(value.asString());
+                }
+                keys.put(key.getName(), values);
+            }
+            headers.put(header.getName(), keys);
+        }
+        return headers;
+    }
+}
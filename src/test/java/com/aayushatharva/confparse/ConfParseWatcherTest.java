@@ -0,0 +1,155 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseLoadConfigException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a watched config keeps being reloaded after a reload failed
+ * and that snapshots of it do not change.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseWatcherTest {
+
+    /**
+     * The time to wait for the watcher to pick up a change.
+     */
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    @TempDir
+    File Directory;
+
+    @Test
+    void watcherSurvivesFailedReload() throws IOException, ConfParseException, InterruptedException {
+        File file = new File(Directory, "watched.conf");
+        write(file, "Server:\n    port 8080\n");
+
+        // Fail The First Reload With An Unexpected Error
+        AtomicBoolean built = new AtomicBoolean();
+        AtomicBoolean failed = new AtomicBoolean();
+        ConfParseMetrics metrics = new ConfParseMetrics() {
+            @Override
+            public void loaded(ConfParseLoadStats stats) {
+                if (built.getAndSet(true) && !failed.getAndSet(true)) {
+                    throw new IllegalStateException("Reload Failed");
+                }
+            }
+        };
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).metrics(metrics).BuildWatched(200)) {
+            write(file, "Server:\n    port 8081\n");
+            await(() -> watcher.getLastError() != null);
+
+            assertInstanceOf(ConfParseLoadConfigException.class, watcher.getLastError());
+            assertInstanceOf(IllegalStateException.class, watcher.getLastError().getCause());
+            assertEquals("8080", port(watcher));
+
+            write(file, "Server:\n    port 8082\n");
+            await(() -> "8082".equals(port(watcher)));
+
+            assertNull(watcher.getLastError());
+        }
+    }
+
+    @Test
+    void reloadReportsUnexpectedErrors() throws IOException, ConfParseException {
+        File file = new File(Directory, "reloaded.conf");
+        write(file, "Server:\n    port 8080\n");
+
+        AtomicBoolean fail = new AtomicBoolean();
+        ConfParseMetrics metrics = new ConfParseMetrics() {
+            @Override
+            public void loaded(ConfParseLoadStats stats) {
+                if (fail.get()) {
+                    throw new IllegalStateException("Reload Failed");
+                }
+            }
+        };
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).metrics(metrics).BuildWatched(TIMEOUT)) {
+            fail.set(true);
+            ConfParseLoadConfigException error = assertThrows(ConfParseLoadConfigException.class, watcher::reload);
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+
+            fail.set(false);
+            write(file, "Server:\n    port 8081\n");
+            assertTrue(watcher.reload().contains("Server"));
+            assertEquals("8081", port(watcher));
+        }
+    }
+
+    @Test
+    void frozenWatchedConfigHandsOutDetachedSnapshots() throws IOException, ConfParseException {
+        File file = new File(Directory, "frozen.conf");
+        write(file, "Server:\n    port 8080\n");
+
+        try (ConfParseWatcher watcher = ConfParse.fromFile(file).freeze(true).BuildWatched(TIMEOUT)) {
+            ConfParseConfig config = watcher.getConfig();
+            assertFalse(config.isFrozen());
+
+            ConfParseConfig snapshot = config.freeze();
+            assertNotSame(config, snapshot);
+            assertTrue(snapshot.isFrozen());
+
+            write(file, "Server:\n    port 8081\n");
+            watcher.reload();
+
+            assertEquals("8081", port(watcher));
+            assertEquals("8080", snapshot.getKey("Server", "port").getValue(0).asString());
+        }
+    }
+
+    private static String port(ConfParseWatcher watcher) {
+        return watcher.getConfig().getKey("Server", "port").getValue(0).asString();
+    }
+
+    private static void write(File file, String data) throws IOException {
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Waits until the given condition holds.
+     *
+     * @param condition The condition.
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the watcher");
+            Thread.sleep(10);
+        }
+    }
+}
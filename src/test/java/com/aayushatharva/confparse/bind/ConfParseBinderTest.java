@@ -0,0 +1,143 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.bind;
+
+import java.util.Arrays;
+import java.util.List;
+import com.aayushatharva.confparse.ConfParse;
+import com.aayushatharva.confparse.ConfParseConfig;
+import com.aayushatharva.confparse.config.Header;
+import com.aayushatharva.confparse.config.Key;
+import com.aayushatharva.confparse.config.Value;
+import com.aayushatharva.confparse.exceptions.ConfParseException;
+import com.aayushatharva.confparse.exceptions.ConfParseInvalidConfigException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that headers are bound to the fields of objects, that missing keys
+ * are taken from the defaults of a builder and that errors name the keys.
+ *
+ * @author Aayush Atharva
+ */
+class ConfParseBinderTest {
+
+    private static final String CONFIG = "Server:\n"
+            + "    host example.com\n"
+            + "    port 8080\n"
+            + "    ratio 0.5\n"
+            + "    debug true\n"
+            + "    backends 10.0.0.1 10.0.0.2\n"
+            + "    weights 1 2 3\n";
+
+    @Test
+    void fieldsAreBound() throws ConfParseException {
+        Server server = ConfParseBinder.of(Server.class).bind(ConfParse.fromData(CONFIG).BuildFromData(), "Server");
+
+        assertEquals("example.com", server.host);
+        assertEquals(8080, server.port);
+        assertEquals(0.5, server.ratio);
+        assertTrue(server.debug);
+        assertArrayEquals(new String[]{"10.0.0.1", "10.0.0.2"}, server.backendHosts);
+        assertEquals("10.0.0.2", server.secondBackend);
+        assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2"), server.backendList);
+        assertArrayEquals(new int[]{1, 2, 3}, server.weights);
+        assertEquals(4, server.threads);
+    }
+
+    @Test
+    void missingKeysAreReportedAtOnce() throws ConfParseException {
+        ConfParseConfig config = ConfParse.fromData("Server:\n    host example.com\n").BuildFromData();
+
+        ConfParseException error = assertThrows(ConfParseInvalidConfigException.class, () -> ConfParseBinder.of(Server.class).bind(config, "Server"));
+        assertEquals("Header Server is missing port, ratio, debug, backends, weights", error.getMessage());
+    }
+
+    @Test
+    void missingKeysAreTakenFromDefaults() throws ConfParseException {
+        ConfParse.ConfParser builder = ConfParse.fromData("Server:\n    host example.com\n    port 8080\n");
+        builder.def(new Header("Server"), new Key("port"), new Value("9090"));
+        builder.def(new Header("Server"), new Key("threads"), new Value("16"));
+        builder.def(new Header("Client"), new Key("host"), new Value("client.example.com"));
+        builder.def(new Header("Client"), new Key("port"), new Value("7070"));
+        ConfParseConfig config = builder.BuildFromData();
+
+        ConfParseBinder<Small> binder = ConfParseBinder.of(Small.class).withDefaults(builder);
+        Small server = binder.bind(config, "Server");
+        assertEquals(8080, server.port);
+        assertEquals(16, server.threads);
+
+        // A Missing Header Is Bound From Its Defaults
+        Small client = binder.bind(ConfParse.fromData("Other:\n    key value\n").BuildFromData(), "Client");
+        assertEquals("client.example.com", client.host);
+        assertEquals(7070, client.port);
+    }
+
+    @Test
+    void defaultsAreCopiedOnce() throws ConfParseException {
+        ConfParse.ConfParser builder = ConfParse.fromData("Server:\n    host example.com\n    port 8080\n");
+        builder.def(new Header("Server"), new Key("threads"), new Value("16"));
+        ConfParseBinder<Small> binder = ConfParseBinder.of(Small.class).withDefaults(builder);
+
+        // Defaults Added Later Need A New Binder
+        builder.def(new Header("Server"), new Key("threads"), new Value("32"));
+        ConfParseConfig config = ConfParse.fromData("Server:\n    host example.com\n    port 8080\n").BuildFromData();
+        assertEquals(16, binder.bind(config, "Server").threads);
+        assertEquals(16, ConfParseBinder.of(Small.class).withDefaults(builder).bind(config, "Server").threads);
+    }
+
+    @Test
+    void invalidValueNamesKey() throws ConfParseException {
+        ConfParseConfig config = ConfParse.fromData("Server:\n    host example.com\n    port http\n").BuildFromData();
+
+        ConfParseException error = assertThrows(ConfParseInvalidConfigException.class, () -> ConfParseBinder.of(Small.class).bind(config, "Server"));
+        assertEquals("Key port of header Server is not of type int", error.getMessage());
+        assertInstanceOf(NumberFormatException.class, error.getCause());
+    }
+
+    @Test
+    void unsupportedFieldIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ConfParseBinder.of(Unsupported.class));
+    }
+
+    static class Server {
+        String host;
+        int port;
+        double ratio;
+        boolean debug;
+        @ConfParseKey("backends") String[] backendHosts;
+        @ConfParseKey(value = "backends", index = 1) String secondBackend;
+        @ConfParseKey("backends") List<String> backendList;
+        int[] weights;
+        @ConfParseKey(optional = true) int threads = 4;
+    }
+
+    static class Small {
+        String host;
+        int port;
+        @ConfParseKey(optional = true) int threads = 4;
+    }
+
+    static class Unsupported {
+        Object host;
+    }
+}
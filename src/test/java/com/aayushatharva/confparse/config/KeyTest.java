@@ -0,0 +1,160 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the values, typed arrays and cursors of keys.
+ *
+ * @author Aayush Atharva
+ */
+class KeyTest {
+
+    @Test
+    void nextIsRoundRobinAcrossThreads() throws InterruptedException {
+        Key key = key("Backends", 4);
+        Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        int threads = 4;
+        int calls = 10000;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                await(barrier);
+                for (int i = 0; i < calls; i++) {
+                    counts.computeIfAbsent(key.nextString(), v -> new AtomicInteger()).incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Every Value Gets Exactly Its Share
+        assertEquals(4, counts.size());
+        for (AtomicInteger count : counts.values()) {
+            assertEquals(threads * calls / 4, count.get());
+        }
+    }
+
+    @Test
+    void nextFailsWithoutValues() {
+        Key key = new Key("Empty");
+
+        assertThrows(IndexOutOfBoundsException.class, key::next);
+        assertThrows(IndexOutOfBoundsException.class, () -> key.newCursor().next());
+    }
+
+    @Test
+    void cursorIteratesOnItsOwn() {
+        Key key = key("Backends", 3).freeze();
+        Key.Cursor cursor = key.newCursor();
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            counts.merge(cursor.next().asString(), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertEquals(10, count));
+
+        // The Cursor Does Not Move The Shared Round-Robin
+        String first = key.nextString();
+        cursor.next();
+        cursor.next();
+        String second = key.nextString();
+        String third = key.nextString();
+        assertEquals(3, new HashSet<>(Arrays.asList(first, second, third)).size());
+    }
+
+    @Test
+    void typedValuesAreReadFromFlatArrays() {
+        Key key = new Key("Ports");
+        for (String value : new String[]{"8080", "8081", "8082"}) {
+            key.addValue(new Value(value));
+        }
+        key = key.freeze();
+
+        assertEquals(3, key.getValueCount());
+        assertEquals(8081, key.getInt(1));
+        assertEquals(8082L, key.getLong(2));
+        assertEquals(8080.0, key.getDouble(0));
+        assertArrayEquals(new int[]{8080, 8081, 8082}, key.asIntArray());
+        assertArrayEquals(new long[]{8080, 8081, 8082}, key.asLongArray());
+        assertArrayEquals(new double[]{8080, 8081, 8082}, key.asDoubleArray());
+    }
+
+    @Test
+    void typedArraysAreCopies() {
+        Key key = key("Ports", 0);
+        key.addValue(new Value("1"));
+
+        int[] copy = key.asIntArray();
+        copy[0] = 2;
+        assertEquals(1, key.getInt(0));
+        assertNotSame(key.asIntArray(), key.asIntArray());
+    }
+
+    @Test
+    void addedValueIsConverted() {
+        Key key = key("Ports", 0);
+        key.addValue(new Value("1"));
+        assertEquals(1, key.getInt(0));
+
+        // Adding A Value Drops The Converted Array
+        key.addValue(new Value("2"));
+        assertArrayEquals(new int[]{1, 2}, key.asIntArray());
+        assertEquals(2, key.getValueCount());
+    }
+
+    @Test
+    void invalidTypedValueFails() {
+        Key key = key("Hosts", 2);
+        assertThrows(NumberFormatException.class, () -> key.getInt(0));
+        assertThrows(NumberFormatException.class, key::asLongArray);
+    }
+
+    private static Key key(String name, int values) {
+        Key key = new Key(name);
+        for (int i = 0; i < values; i++) {
+            key.addValue(new Value("10.0.0." + i));
+        }
+        return key;
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
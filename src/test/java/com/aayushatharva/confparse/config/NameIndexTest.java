@@ -0,0 +1,80 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the lookups of the name tables by one and by two names.
+ *
+ * @author Aayush Atharva
+ */
+class NameIndexTest {
+
+    @Test
+    void valuesAreFoundByName() {
+        NameIndex<Integer> index = new NameIndex<>(1000, 1);
+        for (int i = 0; i < 1000; i++) {
+            index.put("name" + i, i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, index.get("name" + i));
+        }
+        assertNull(index.get("name1000"));
+    }
+
+    @Test
+    void valuesAreFoundByPairOfNames() {
+        NameIndex<String> index = new NameIndex<>(4, 2);
+        index.put("Server", "host", "Server.host");
+        index.put("Server", "port", "Server.port");
+        index.put("Client", "host", "Client.host");
+
+        assertEquals("Server.host", index.get("Server", "host"));
+        assertEquals("Server.port", index.get("Server", "port"));
+        assertEquals("Client.host", index.get("Client", "host"));
+        assertNull(index.get("Client", "port"));
+        assertNull(index.get("host", "Server"));
+    }
+
+    @Test
+    void collidingNamesAreProbed() {
+        // "Aa" And "BB" Have The Same Hash Code
+        NameIndex<String> index = new NameIndex<>(2, 1);
+        index.put("Aa", "first");
+        index.put("BB", "second");
+
+        assertEquals("first", index.get("Aa"));
+        assertEquals("second", index.get("BB"));
+    }
+
+    @Test
+    void emptyIndexFindsNothing() {
+        assertNull(new NameIndex<String>(0, 1).get("Server"));
+        assertNull(new NameIndex<String>(0, 2).get("Server", "host"));
+    }
+
+    @Test
+    void invalidNameCountIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new NameIndex<String>(1, 3));
+    }
+}
@@ -0,0 +1,127 @@
+/* 
+ * Copyright (C) 2018 Aayush Atharva
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aayushatharva.confparse.config;
+
+import java.util.concurrent.CyclicBarrier;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the cached typed conversions of values.
+ *
+ * @author Aayush Atharva
+ */
+class ValueTest {
+
+    @Test
+    void conversionsAreCached() {
+        Value value = new Value("42");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(42, value.asInt());
+            assertEquals(42L, value.asLong());
+            assertEquals(42.0, value.asDouble());
+            assertEquals(42.0f, value.asFloat());
+            assertFalse(value.asBoolean());
+        }
+        assertTrue(new Value("true").asBoolean());
+    }
+
+    @Test
+    void failuresAreCachedPerType() {
+        Value value = new Value("1.5");
+
+        NumberFormatException intFailure = assertThrows(NumberFormatException.class, value::asInt);
+        assertSame(intFailure, assertThrows(NumberFormatException.class, value::asInt));
+
+        // Other Conversions Neither Rethrow Nor Replace The Int Failure
+        assertEquals(1.5, value.asDouble());
+        assertEquals(1.5f, value.asFloat());
+        NumberFormatException longFailure = assertThrows(NumberFormatException.class, value::asLong);
+        assertNotSame(intFailure, longFailure);
+        assertSame(intFailure, assertThrows(NumberFormatException.class, value::asInt));
+        assertSame(longFailure, assertThrows(NumberFormatException.class, value::asLong));
+    }
+
+    @Test
+    void longDoesNotInheritIntFailure() {
+        Value value = new Value("9999999999");
+
+        assertThrows(NumberFormatException.class, value::asInt);
+        assertEquals(9999999999L, value.asLong());
+    }
+
+    @Test
+    void concurrentConversionsKeepAllCachedResults() throws Exception {
+        Value[] values = new Value[20000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Value(i + ".5");
+        }
+
+        NumberFormatException[] failures = new NumberFormatException[values.length];
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Thread ints = new Thread(() -> {
+            await(barrier);
+            for (int i = 0; i < values.length; i++) {
+                try {
+                    values[i].asInt();
+                } catch (NumberFormatException e) {
+                    failures[i] = e;
+                }
+            }
+        });
+        Thread doubles = new Thread(() -> {
+            await(barrier);
+            for (Value value : values) {
+                value.asDouble();
+            }
+        });
+        ints.start();
+        doubles.start();
+        ints.join();
+        doubles.join();
+
+        // A Lost Failure Flag Would Parse And Throw A New Exception
+        for (int i = 0; i < values.length; i++) {
+            assertSame(failures[i], assertThrows(NumberFormatException.class, values[i]::asInt));
+            assertEquals(i + 0.5, values[i].asDouble());
+        }
+    }
+
+    @Test
+    void characterSequenceIsConvertedOnFirstRead() {
+        Value value = Value.of(new StringBuilder("7"));
+
+        assertEquals("7", value.asString());
+        assertSame(value.asString(), value.asString());
+        assertEquals(7, value.asInt());
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}